@@ -1,11 +1,17 @@
 package org.codeforamerica.messaging.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
+@EnableScheduling
 public class AppConfig {
     @Bean
     public MessageSource messageSource() {
@@ -14,4 +20,19 @@ public class AppConfig {
         messageSource.setDefaultEncoding("UTF-8");
         return messageSource;
     }
+
+    /**
+     * Threads that send a message's SMS and email at the same time. When every thread is busy the job's own thread
+     * sends instead, so a message is never left waiting in a queue.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor messageDispatchExecutor(@Value("${message.dispatch.pool-size}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(0);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("message-dispatch-");
+        return executor;
+    }
 }
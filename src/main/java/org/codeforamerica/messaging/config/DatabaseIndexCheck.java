@@ -0,0 +1,74 @@
+package org.codeforamerica.messaging.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Warns at startup about indexes that status callbacks rely on. They are created concurrently, and a concurrent
+ * build that fails leaves an invalid index behind that Postgres never uses. Flyway records the migration as failed,
+ * but once it is repaired and run again, CREATE INDEX CONCURRENTLY IF NOT EXISTS skips the invalid index, so the
+ * migration succeeds without it.
+ */
+@Component
+@Slf4j
+public class DatabaseIndexCheck {
+    private static final String MIGRATION = "V24__Add_provider_message_id_indexes.sql";
+    private static final List<String> EXPECTED_INDEXES = List.of(
+            "sms_message_provider_message_id_idx",
+            "email_message_provider_message_id_to_email_idx",
+            "message_sms_message_id_idx",
+            "message_email_message_id_idx");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DatabaseIndexCheck(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warnAboutMissingIndexes() {
+        Map<String, Boolean> validityByIndex = findIndexValidity();
+        for (String index : expectedIndexes()) {
+            Boolean valid = validityByIndex.get(index);
+            if (valid == null) {
+                log.warn("Database index {} is missing. Create it with the statement in {}", index, MIGRATION);
+            } else if (!valid) {
+                log.warn("Database index {} is invalid and will not be used, most likely left by a failed concurrent "
+                        + "build that was skipped when {} was run again. Run DROP INDEX CONCURRENTLY {}, then create "
+                        + "it with the statement in {}", index, MIGRATION, index, MIGRATION);
+            }
+        }
+    }
+
+    /**
+     * @return Expected indexes that are missing or invalid
+     */
+    public List<String> findMissingIndexes() {
+        Map<String, Boolean> validityByIndex = findIndexValidity();
+        return expectedIndexes().stream()
+                .filter(index -> !validityByIndex.getOrDefault(index, false))
+                .toList();
+    }
+
+    private Map<String, Boolean> findIndexValidity() {
+        Map<String, Boolean> validityByIndex = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT c.relname, i.indisvalid FROM pg_index i
+                JOIN pg_class c ON c.oid = i.indexrelid
+                WHERE c.relnamespace = current_schema()::regnamespace
+                """, (RowCallbackHandler) rs -> validityByIndex.put(rs.getString(1), rs.getBoolean(2)));
+        return validityByIndex;
+    }
+
+    List<String> expectedIndexes() {
+        return EXPECTED_INDEXES;
+    }
+}
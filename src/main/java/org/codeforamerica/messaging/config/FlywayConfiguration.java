@@ -0,0 +1,19 @@
+package org.codeforamerica.messaging.config;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+@Configuration
+public class FlywayConfiguration {
+    /**
+     * Flyway's default lock holds a transaction open for the whole migration, and CREATE INDEX CONCURRENTLY waits for
+     * every open transaction to finish, so the two would wait on each other forever. A session lock doesn't.
+     */
+    @Bean
+    public FlywayConfigurationCustomizer sessionLockCustomizer() {
+        return configuration -> configuration.configuration(Map.of("flyway.postgresql.transactional.lock", "false"));
+    }
+}
@@ -0,0 +1,63 @@
+package org.codeforamerica.messaging.config;
+
+import com.mailgun.api.v3.MailgunMessagesApi;
+import com.mailgun.client.MailgunClient;
+import feign.Request;
+import feign.Retryer;
+import org.codeforamerica.messaging.providers.CircuitBreaker;
+import org.codeforamerica.messaging.providers.ProviderRateLimiter;
+import org.codeforamerica.messaging.providers.mailgun.MailgunRetryer;
+import org.codeforamerica.messaging.repositories.ProviderRateLimitRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MailgunConfiguration {
+    @Value("${mailgun.api.key}")
+    private String mailgunApiKey;
+    @Value("${mailgun.http.connect-timeout-in-millis}")
+    private long connectTimeoutInMillis;
+    @Value("${mailgun.http.read-timeout-in-millis}")
+    private long readTimeoutInMillis;
+    @Value("${mailgun.http.max-attempts}")
+    private int maxAttempts;
+    @Value("${mailgun.api.domain}")
+    private String mailgunDomain;
+    @Value("${mailgun.rate-limit.enabled}")
+    private boolean rateLimitEnabled;
+    @Value("${mailgun.rate-limit.messages-per-second}")
+    private double rateLimitMessagesPerSecond;
+    @Value("${mailgun.rate-limit.burst-size}")
+    private double rateLimitBurstSize;
+    @Value("${mailgun.circuit-breaker.failure-threshold}")
+    private int circuitBreakerFailureThreshold;
+    @Value("${mailgun.circuit-breaker.open-duration-in-seconds}")
+    private long circuitBreakerOpenDurationInSeconds;
+
+    @Bean
+    public MailgunMessagesApi mailgunMessagesApi() {
+        return MailgunClient.config(mailgunApiKey)
+                .options(new Request.Options(
+                        connectTimeoutInMillis, TimeUnit.MILLISECONDS,
+                        readTimeoutInMillis, TimeUnit.MILLISECONDS,
+                        true))
+                .retryer(new MailgunRetryer(new Retryer.Default(100, TimeUnit.SECONDS.toMillis(1), maxAttempts)))
+                .createApi(MailgunMessagesApi.class);
+    }
+
+    @Bean
+    public ProviderRateLimiter mailgunRateLimiter(ProviderRateLimitRepository providerRateLimitRepository) {
+        return new ProviderRateLimiter("Mailgun", mailgunDomain, rateLimitEnabled,
+                rateLimitMessagesPerSecond, rateLimitBurstSize, providerRateLimitRepository);
+    }
+
+    @Bean
+    public CircuitBreaker mailgunCircuitBreaker() {
+        return new CircuitBreaker("Mailgun", circuitBreakerFailureThreshold,
+                Duration.ofSeconds(circuitBreakerOpenDurationInSeconds));
+    }
+}
@@ -0,0 +1,82 @@
+package org.codeforamerica.messaging.config;
+
+import com.twilio.http.NetworkHttpClient;
+import com.twilio.http.TwilioRestClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.codeforamerica.messaging.providers.CircuitBreaker;
+import org.codeforamerica.messaging.providers.ProviderRateLimiter;
+import org.codeforamerica.messaging.repositories.ProviderRateLimitRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class TwilioConfiguration {
+    @Value("${twilio.account.sid}")
+    private String twilioAccountSid;
+    @Value("${twilio.auth.token}")
+    private String twilioAuthToken;
+    @Value("${twilio.http.max-connections}")
+    private int maxConnections;
+    @Value("${twilio.http.connection-time-to-live-in-seconds}")
+    private long connectionTimeToLiveInSeconds;
+    @Value("${twilio.http.connect-timeout-in-millis}")
+    private int connectTimeoutInMillis;
+    @Value("${twilio.http.socket-timeout-in-millis}")
+    private int socketTimeoutInMillis;
+    @Value("${twilio.messaging.service.sid}")
+    private String twilioMessagingServiceSid;
+    @Value("${twilio.rate-limit.enabled}")
+    private boolean rateLimitEnabled;
+    @Value("${twilio.rate-limit.messages-per-second}")
+    private double rateLimitMessagesPerSecond;
+    @Value("${twilio.rate-limit.burst-size}")
+    private double rateLimitBurstSize;
+    @Value("${twilio.circuit-breaker.failure-threshold}")
+    private int circuitBreakerFailureThreshold;
+    @Value("${twilio.circuit-breaker.open-duration-in-seconds}")
+    private long circuitBreakerOpenDurationInSeconds;
+
+    @Bean
+    public PoolingHttpClientConnectionManager twilioConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(connectionTimeToLiveInSeconds, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        // All requests go to the same Twilio API host, so a single route may use the whole pool
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        return connectionManager;
+    }
+
+    @Bean
+    public TwilioRestClient twilioRestClient(PoolingHttpClientConnectionManager twilioConnectionManager) {
+        HttpClientBuilder httpClientBuilder = HttpClientBuilder.create()
+                .useSystemProperties()
+                .setConnectionManager(twilioConnectionManager)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeoutInMillis)
+                        .setConnectionRequestTimeout(connectTimeoutInMillis)
+                        .setSocketTimeout(socketTimeoutInMillis)
+                        .build());
+        return new TwilioRestClient.Builder(twilioAccountSid, twilioAuthToken)
+                .httpClient(new NetworkHttpClient(httpClientBuilder))
+                .build();
+    }
+
+    @Bean
+    public ProviderRateLimiter twilioRateLimiter(ProviderRateLimitRepository providerRateLimitRepository) {
+        return new ProviderRateLimiter("Twilio", twilioMessagingServiceSid, rateLimitEnabled,
+                rateLimitMessagesPerSecond, rateLimitBurstSize, providerRateLimitRepository);
+    }
+
+    @Bean
+    public CircuitBreaker twilioCircuitBreaker() {
+        return new CircuitBreaker("Twilio", circuitBreakerFailureThreshold,
+                Duration.ofSeconds(circuitBreakerOpenDurationInSeconds));
+    }
+}
@@ -1,7 +1,22 @@
 package org.codeforamerica.messaging.exceptions;
 
 public class MessageSendException extends Exception {
+    private final boolean retryable;
+
     public MessageSendException(String message) {
+        this(message, false);
+    }
+
+    /**
+     * @param retryable True if the failure is likely temporary, like a timeout or a provider error, so sending again
+     *                  later may succeed
+     */
+    public MessageSendException(String message, boolean retryable) {
         super(message);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
     }
 }
@@ -0,0 +1,9 @@
+package org.codeforamerica.messaging.exceptions;
+
+import java.time.Duration;
+
+public class ProviderRateLimitedException extends ProviderUnavailableException {
+    public ProviderRateLimitedException(String provider, Duration retryAfter) {
+        super("Rate limited by " + provider, retryAfter);
+    }
+}
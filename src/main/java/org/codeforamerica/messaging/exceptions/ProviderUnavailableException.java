@@ -0,0 +1,20 @@
+package org.codeforamerica.messaging.exceptions;
+
+import java.time.Duration;
+
+/**
+ * Nothing was sent because the provider can't take messages right now. Sending should be tried again after
+ * {@link #getRetryAfter()}, without counting as a failed attempt.
+ */
+public class ProviderUnavailableException extends MessageSendException {
+    private final Duration retryAfter;
+
+    public ProviderUnavailableException(String message, Duration retryAfter) {
+        super(message, true);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -14,6 +14,9 @@ public class EmailMessageStatusUpdateJobRequest implements JobRequest {
     @Getter
     private String providerMessageId;
 
+    @Getter
+    private String toEmail;
+
     @Getter
     private String rawStatus;
 
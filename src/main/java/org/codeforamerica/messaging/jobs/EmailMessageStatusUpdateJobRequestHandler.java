@@ -19,7 +19,7 @@ public class EmailMessageStatusUpdateJobRequestHandler implements JobRequestHand
     @Job(name = "UpdateSmsStatus %0")
     public void run(EmailMessageStatusUpdateJobRequest emailMessageStatusUpdateJobRequest) throws Exception {
         emailService.updateStatus(emailMessageStatusUpdateJobRequest.getProviderMessageId(),
-                emailMessageStatusUpdateJobRequest.getMessageStatus(), emailMessageStatusUpdateJobRequest.getRawStatus(),
+                emailMessageStatusUpdateJobRequest.getToEmail(), emailMessageStatusUpdateJobRequest.getMessageStatus(), emailMessageStatusUpdateJobRequest.getRawStatus(),
                 emailMessageStatusUpdateJobRequest.getProviderError());
     }
 }
@@ -0,0 +1,29 @@
+package org.codeforamerica.messaging.jobs;
+
+import lombok.NoArgsConstructor;
+import org.jobrunr.jobs.lambdas.JobRequest;
+
+import java.util.List;
+
+@NoArgsConstructor
+public class EnqueueMessagesJobRequest implements JobRequest {
+    private List<Long> messageIds;
+
+    public EnqueueMessagesJobRequest(List<Long> messageIds) {
+        this.messageIds = messageIds;
+    }
+
+    public List<Long> getMessageIds() {
+        return messageIds;
+    }
+
+    @Override
+    public Class<EnqueueMessagesJobRequestHandler> getJobRequestHandler() {
+        return EnqueueMessagesJobRequestHandler.class;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EnqueueMessagesJobRequest{messageCount=%s}", messageIds.size());
+    }
+}
@@ -0,0 +1,21 @@
+package org.codeforamerica.messaging.jobs;
+
+import org.codeforamerica.messaging.services.MessageService;
+import org.jobrunr.jobs.annotations.Job;
+import org.jobrunr.jobs.lambdas.JobRequestHandler;
+import org.springframework.stereotype.Component;
+
+@Component
+public class EnqueueMessagesJobRequestHandler implements JobRequestHandler<EnqueueMessagesJobRequest> {
+    private final MessageService messageService;
+
+    public EnqueueMessagesJobRequestHandler(MessageService messageService) {
+        this.messageService = messageService;
+    }
+
+    @Override
+    @Job(name="EnqueueMessages %0")
+    public void run(EnqueueMessagesJobRequest enqueueMessagesJobRequest) {
+        messageService.enqueueSendMessageJobs(enqueueMessagesJobRequest.getMessageIds());
+    }
+}
@@ -0,0 +1,29 @@
+package org.codeforamerica.messaging.jobs;
+
+import lombok.NoArgsConstructor;
+import org.jobrunr.jobs.lambdas.JobRequest;
+
+import java.util.List;
+
+@NoArgsConstructor
+public class SendMessagesJobRequest implements JobRequest {
+    private List<Long> messageIds;
+
+    public SendMessagesJobRequest(List<Long> messageIds) {
+        this.messageIds = messageIds;
+    }
+
+    public List<Long> getMessageIds() {
+        return messageIds;
+    }
+
+    @Override
+    public Class<SendMessagesJobRequestHandler> getJobRequestHandler() {
+        return SendMessagesJobRequestHandler.class;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SendMessagesJobRequest{messageCount=%s}", messageIds.size());
+    }
+}
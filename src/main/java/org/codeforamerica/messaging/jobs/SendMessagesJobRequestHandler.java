@@ -0,0 +1,21 @@
+package org.codeforamerica.messaging.jobs;
+
+import org.codeforamerica.messaging.services.MessageService;
+import org.jobrunr.jobs.annotations.Job;
+import org.jobrunr.jobs.lambdas.JobRequestHandler;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SendMessagesJobRequestHandler implements JobRequestHandler<SendMessagesJobRequest> {
+    private final MessageService messageService;
+
+    public SendMessagesJobRequestHandler(MessageService messageService) {
+        this.messageService = messageService;
+    }
+
+    @Override
+    @Job(name="SendMessages %0")
+    public void run(SendMessagesJobRequest sendMessagesJobRequest) {
+        messageService.sendMessages(sendMessagesJobRequest.getMessageIds());
+    }
+}
@@ -0,0 +1,6 @@
+package org.codeforamerica.messaging.models;
+
+import java.util.Set;
+
+record CompiledTemplate(com.github.jknack.handlebars.Template handlebarsTemplate, Set<String> placeholders) {
+}
@@ -0,0 +1,56 @@
+package org.codeforamerica.messaging.models;
+
+import org.apache.commons.collections4.map.LRUMap;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Shared cache of compiled handlebars templates and their placeholders so a template variant's fields are compiled
+ * once rather than for every message sent. Entries are keyed by template variant id, update timestamp and field
+ * source, and the least recently used entries are evicted once the cache is full.
+ */
+final class CompiledTemplateCache {
+    static final int MAX_SIZE = 1000;
+
+    private static final Map<Key, CompiledTemplate> cache = new LRUMap<>(MAX_SIZE);
+
+    private CompiledTemplateCache() {
+    }
+
+    static CompiledTemplate get(Long templateVariantId, OffsetDateTime updateTimestamp, String source,
+            Function<String, CompiledTemplate> compiler) {
+        Key key = new Key(templateVariantId, updateTimestamp, source);
+        CompiledTemplate compiledTemplate;
+        synchronized (cache) {
+            compiledTemplate = cache.get(key);
+        }
+        if (compiledTemplate == null) {
+            compiledTemplate = compiler.apply(source);
+            synchronized (cache) {
+                cache.put(key, compiledTemplate);
+            }
+        }
+        return compiledTemplate;
+    }
+
+    static void invalidate(Long templateVariantId) {
+        if (templateVariantId == null) {
+            return;
+        }
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> Objects.equals(key.templateVariantId(), templateVariantId));
+        }
+    }
+
+    static int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private record Key(Long templateVariantId, OffsetDateTime updateTimestamp, String source) {
+    }
+}
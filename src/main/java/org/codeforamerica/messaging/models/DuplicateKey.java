@@ -0,0 +1,54 @@
+package org.codeforamerica.messaging.models;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.codeforamerica.messaging.utils.CSVReader.TREATMENT_HEADER;
+
+/**
+ * Builds the key used to find duplicate messages: a SHA-256 hash of the channel, recipient, template and template
+ * params. The treatment is left out so the same message sent with a different treatment is still a duplicate.
+ * <p>
+ * Each value is prefixed with its length in UTF-8 bytes and params are sorted by name, so the V20 migration can
+ * compute the same key in SQL.
+ */
+final class DuplicateKey {
+    static final String SMS_CHANNEL = "sms";
+    static final String EMAIL_CHANNEL = "email";
+
+    private DuplicateKey() {
+    }
+
+    static String of(String channel, String recipient, Long templateId, Map<String, String> templateParams) {
+        StringBuilder key = new StringBuilder();
+        append(key, channel);
+        append(key, recipient);
+        append(key, String.valueOf(templateId));
+        if (templateParams != null) {
+            new TreeMap<>(templateParams).forEach((name, value) -> {
+                if (!TREATMENT_HEADER.equals(name)) {
+                    append(key, name);
+                    append(key, value == null ? "" : value);
+                }
+            });
+        }
+        return sha256(key.toString());
+    }
+
+    private static void append(StringBuilder key, String value) {
+        key.append(value.getBytes(StandardCharsets.UTF_8).length).append(':').append(value);
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.codeforamerica.messaging.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Latest subscription for each email. {@link EmailSubscription} keeps the full history.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailSubscriptionState {
+    @Id
+    private String email;
+    private boolean unsubscribed;
+    private OffsetDateTime updateTimestamp;
+}
@@ -0,0 +1,25 @@
+package org.codeforamerica.messaging.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Token from a Mailgun webhook that has already been accepted, shared by every instance so a replayed webhook is
+ * rejected whichever instance it reaches. Kept until the webhook's timestamp is too old to be accepted anyway.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MailgunWebhookToken {
+    @Id
+    private String token;
+    private OffsetDateTime expiresAt;
+}
@@ -1,5 +1,6 @@
 package org.codeforamerica.messaging.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
@@ -14,6 +15,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.type.SqlTypes;
 
 import java.time.OffsetDateTime;
+import java.util.Collections;
 import java.util.Map;
 
 import static org.codeforamerica.messaging.models.TemplateVariant.DEFAULT_LANGUAGE;
@@ -29,7 +31,8 @@ import static org.codeforamerica.messaging.utils.CSVReader.TREATMENT_HEADER;
 public class Message {
 
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_id_seq")
+    @SequenceGenerator(name = "message_id_seq", sequenceName = "message_id_seq", allocationSize = 50)
     private Long id;
     @ManyToOne
     @NotNull
@@ -49,6 +52,7 @@ public class Message {
     @Enumerated(EnumType.STRING)
     private MessageStatus smsStatus;
     private String smsErrorMessage;
+    private int smsRetryCount;
 
     @OneToOne(cascade = CascadeType.REMOVE)
     private EmailMessage emailMessage;
@@ -56,6 +60,11 @@ public class Message {
     @Enumerated(EnumType.STRING)
     private MessageStatus emailStatus;
     private String emailErrorMessage;
+    private int emailRetryCount;
+    @JsonIgnore
+    private String smsDuplicateKey;
+    @JsonIgnore
+    private String emailDuplicateKey;
 
     @CreationTimestamp
     private OffsetDateTime creationTimestamp;
@@ -64,16 +73,38 @@ public class Message {
     @Version
     private Long version;
 
+    /**
+     * Template params are read-only once a message is built. Changing them on a managed message would have Hibernate
+     * write it back on flush, and would leave its stored duplicate keys out of date.
+     */
+    public Map<String, String> getTemplateParams() {
+        return templateParams == null ? null : Collections.unmodifiableMap(templateParams);
+    }
+
     public String getTemplateName() {
         return templateVariant.getTemplateName();
     }
 
     public boolean needToSendEmail() {
-        return toEmail != null && emailMessage == null && emailStatus == null;
+        return toEmail != null && emailMessage == null && (emailStatus == null || emailStatus == MessageStatus.retrying);
     }
 
     public boolean needToSendSms() {
-        return toPhone != null && smsMessage == null && smsStatus == null;
+        return toPhone != null && smsMessage == null && (smsStatus == null || smsStatus == MessageStatus.retrying);
+    }
+
+    /**
+     * Keys identifying this message's SMS and email for duplicate suppression, stored so that finding an earlier
+     * duplicate is a single index lookup.
+     */
+    @PrePersist
+    @PreUpdate
+    public void updateDuplicateKeys() {
+        Long templateId = templateVariant.getTemplate().getId();
+        smsDuplicateKey = toPhone == null ? null :
+                DuplicateKey.of(DuplicateKey.SMS_CHANNEL, toPhone.getNumber(), templateId, templateParams);
+        emailDuplicateKey = toEmail == null ? null :
+                DuplicateKey.of(DuplicateKey.EMAIL_CHANNEL, toEmail, templateId, templateParams);
     }
 
     public String getLanguage() {
@@ -39,4 +39,14 @@ public class MessageBatch {
     MessageBatchMetrics metrics;
     @JdbcTypeCode(SqlTypes.JSON)
     List<Map<String, String>> recipientErrorRows;
+    @JsonIgnore
+    private long recipientsOffset;
+    @JsonIgnore
+    private boolean recipientsScheduled;
+    /**
+     * Messages in the last scheduled chunk whose send jobs may not have been enqueued yet
+     */
+    @JsonIgnore
+    @JdbcTypeCode(SqlTypes.JSON)
+    private List<Long> messageIdsToEnqueue;
 }
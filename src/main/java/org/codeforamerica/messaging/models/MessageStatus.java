@@ -1,6 +1,7 @@
 package org.codeforamerica.messaging.models;
 
 public enum MessageStatus {
+    retrying,
     duplicate,
     submission_succeeded,
     submission_failed,
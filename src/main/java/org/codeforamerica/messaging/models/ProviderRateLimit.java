@@ -0,0 +1,26 @@
+package org.codeforamerica.messaging.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Token bucket shared by every instance sending to a provider account. Tokens are refilled from the time elapsed
+ * since {@link #refilledAt} whenever one is taken, so nothing has to run in the background.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProviderRateLimit {
+    @Id
+    private String rateLimitKey;
+    private double tokens;
+    private OffsetDateTime refilledAt;
+}
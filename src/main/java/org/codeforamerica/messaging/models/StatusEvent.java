@@ -0,0 +1,49 @@
+package org.codeforamerica.messaging.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.codeforamerica.messaging.converters.PhoneNumberConverter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+/**
+ * A status callback from a provider, staged until it is applied to its message along with other recent callbacks.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StatusEvent {
+    public enum Channel {
+        sms,
+        email
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "status_event_id_seq")
+    @SequenceGenerator(name = "status_event_id_seq", sequenceName = "status_event_id_seq", allocationSize = 50)
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    private Channel channel;
+    private String providerMessageId;
+    private String toEmail;
+    @Convert(converter = PhoneNumberConverter.class)
+    private PhoneNumber fromPhone;
+    private String rawStatus;
+    @Enumerated(EnumType.STRING)
+    private MessageStatus status;
+    @JdbcTypeCode(SqlTypes.JSON)
+    private Map<String, String> providerError;
+    private int attempts;
+    private OffsetDateTime applyAfter;
+    @CreationTimestamp
+    private OffsetDateTime creationTimestamp;
+}
@@ -57,6 +57,8 @@ public class Template {
         templateVariant.setSmsBody(smsBody);
         templateVariant.setEmailBody(emailBody);
         templateVariant.setSubject(subject);
+        CompiledTemplateCache.invalidate(templateVariant.getId());
+        templateVariant.updatePlaceholders();
     }
 
     public void mergeTemplateVariant(TemplateVariant templateVariant) {
@@ -80,6 +82,7 @@ public class Template {
                     "Cannot delete last variant on template - delete parent template instead");
         }
         this.getTemplateVariants().removeIf(tv -> tv.equals(templateVariant));
+        CompiledTemplateCache.invalidate(templateVariant.getId());
     }
 
     public Optional<TemplateVariant> getTemplateVariant(String language, String treatment) {
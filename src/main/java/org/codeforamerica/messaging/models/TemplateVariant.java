@@ -13,7 +13,9 @@ import org.codeforamerica.messaging.exceptions.InvalidTemplateException;
 import org.codeforamerica.messaging.exceptions.MissingParamsException;
 import org.codeforamerica.messaging.validators.ValidMessageable;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.type.SqlTypes;
 
 import java.io.IOException;
 import java.time.OffsetDateTime;
@@ -35,6 +37,7 @@ import java.util.stream.Collectors;
 public class TemplateVariant implements Messageable {
     public static final String DEFAULT_LANGUAGE = "en";
     public static final String DEFAULT_TREATMENT = "A";
+    private static final Handlebars handlebars = new Handlebars();
 
     @Id
     @GeneratedValue(strategy= GenerationType.IDENTITY)
@@ -62,6 +65,10 @@ public class TemplateVariant implements Messageable {
     @JsonIgnore
     @ToString.Exclude
     private OffsetDateTime updateTimestamp;
+    @JdbcTypeCode(SqlTypes.JSON)
+    @JsonIgnore
+    @ToString.Exclude
+    private Set<String> placeholders;
 
     @JsonIgnore
     public String getTemplateName() {
@@ -69,23 +76,37 @@ public class TemplateVariant implements Messageable {
     }
 
     public String build(Function<TemplateVariant, String> templateFieldGetter, Map<String, String> templateParams) {
-        com.github.jknack.handlebars.Template handlebarsTemplate = convertStringToHandlebarsTemplate(templateFieldGetter.apply(this));
-        if (handlebarsTemplate == null) {
+        CompiledTemplate compiledTemplate = getCompiledTemplate(templateFieldGetter.apply(this));
+        if (compiledTemplate == null) {
             return null;
         }
-        checkForMissingPlaceholders(getPlaceholdersInTemplateVariantField(handlebarsTemplate), templateParams);
+        checkForMissingPlaceholders(compiledTemplate.placeholders(), templateParams);
         try {
-            return handlebarsTemplate.apply(templateParams);
+            return compiledTemplate.handlebarsTemplate().apply(templateParams);
         } catch (IOException e) {
             throw new InvalidParamsException(templateParams.keySet(), e);
         }
     }
 
+    CompiledTemplate getCompiledTemplate(String templateString) {
+        if (templateString == null) {
+            return null;
+        }
+        if (id == null) {
+            return compile(templateString);
+        }
+        return CompiledTemplateCache.get(id, updateTimestamp, templateString, this::compile);
+    }
+
+    CompiledTemplate compile(String templateString) {
+        com.github.jknack.handlebars.Template handlebarsTemplate = convertStringToHandlebarsTemplate(templateString);
+        return new CompiledTemplate(handlebarsTemplate, getPlaceholdersInTemplateVariantField(handlebarsTemplate));
+    }
+
     com.github.jknack.handlebars.Template convertStringToHandlebarsTemplate(String templateString) {
         if (templateString == null) {
             return null;
         }
-        Handlebars handlebars = new Handlebars();
         try {
             return handlebars.compileInline(templateString);
         } catch (Exception e) {
@@ -96,16 +117,26 @@ public class TemplateVariant implements Messageable {
     Set<String> getPlaceholdersInTemplateVariantField(com.github.jknack.handlebars.Template handlebarsTemplate) {
         Set<String> vars = new HashSet<>(handlebarsTemplate.collect(TagType.VAR));
         vars.addAll(handlebarsTemplate.collect(TagType.TRIPLE_VAR));
-        return vars;
+        return Set.copyOf(vars);
     }
 
     Set<String> getPlaceholdersInTemplateVariantField(Function<TemplateVariant, String> templateFieldGetter) {
-        com.github.jknack.handlebars.Template handlebarsTemplate = convertStringToHandlebarsTemplate(templateFieldGetter.apply(this));
-        return handlebarsTemplate == null ? Set.of() : getPlaceholdersInTemplateVariantField(handlebarsTemplate);
+        CompiledTemplate compiledTemplate = getCompiledTemplate(templateFieldGetter.apply(this));
+        return compiledTemplate == null ? Set.of() : compiledTemplate.placeholders();
     }
 
     @JsonIgnore
     public Set<String> getAllPlaceholders() {
+        return placeholders != null ? placeholders : collectAllPlaceholders();
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updatePlaceholders() {
+        this.placeholders = collectAllPlaceholders();
+    }
+
+    private Set<String> collectAllPlaceholders() {
         Set<String> templateTags = new HashSet<>();
         templateTags.addAll(getPlaceholdersInTemplateVariantField(TemplateVariant::getSubject));
         templateTags.addAll(getPlaceholdersInTemplateVariantField(TemplateVariant::getEmailBody));
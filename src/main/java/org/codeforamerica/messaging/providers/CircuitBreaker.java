@@ -0,0 +1,134 @@
+package org.codeforamerica.messaging.providers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.codeforamerica.messaging.exceptions.MessageSendException;
+import org.codeforamerica.messaging.exceptions.ProviderUnavailableException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Stops calling a provider that keeps failing, so sends are deferred straight away instead of each waiting for a
+ * timeout. The circuit opens after a number of retryable failures in a row. Once it has been open for a while, one
+ * request is let through to check whether the provider has recovered: if it succeeds the circuit closes, otherwise it
+ * stays open for another period.
+ * <p>
+ * Errors from requests the provider rejected, and rate limiting, show the provider is up and don't count as failures.
+ */
+@Slf4j
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String provider;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private Instant openedAt;
+
+    public CircuitBreaker(String provider, int failureThreshold, Duration openDuration) {
+        this(provider, failureThreshold, openDuration, Clock.systemUTC());
+    }
+
+    CircuitBreaker(String provider, int failureThreshold, Duration openDuration, Clock clock) {
+        this.provider = provider;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    public <T> T call(ProviderRequest<T> request) throws MessageSendException {
+        acquirePermission();
+        T result;
+        try {
+            result = request.send();
+        } catch (ProviderUnavailableException e) {
+            onSuccess();
+            throw e;
+        } catch (MessageSendException e) {
+            if (e.isRetryable()) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            onFailure();
+            throw e;
+        }
+        onSuccess();
+        return result;
+    }
+
+    /**
+     * Fails straight away if a request would not be let through right now, without changing the circuit's state.
+     * Lets callers skip work done before calling the provider, like waiting for a rate limit, while the circuit is
+     * open. Only requests made with {@link #call} count towards opening or closing the circuit.
+     */
+    public synchronized void checkAvailable() throws ProviderUnavailableException {
+        if (state == State.CLOSED || state == State.OPEN && !clock.instant().isBefore(openedAt.plus(openDuration))) {
+            return;
+        }
+        throw circuitOpen();
+    }
+
+    private synchronized void acquirePermission() throws ProviderUnavailableException {
+        if (state == State.CLOSED) {
+            return;
+        }
+        if (state == State.OPEN && !clock.instant().isBefore(openedAt.plus(openDuration))) {
+            log.info("{} circuit half open, checking whether it has recovered", provider);
+            state = State.HALF_OPEN;
+            return;
+        }
+        throw circuitOpen();
+    }
+
+    private ProviderUnavailableException circuitOpen() {
+        Duration retryAfter = Duration.between(clock.instant(), openedAt.plus(openDuration));
+        return new ProviderUnavailableException("%s circuit is open".formatted(provider),
+                retryAfter.isNegative() ? openDuration : retryAfter);
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("{} circuit closed", provider);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        openedAt = null;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.warn("{} circuit opened after {} failures in a row", provider, consecutiveFailures);
+            }
+            state = State.OPEN;
+            openedAt = clock.instant();
+        }
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized Instant getOpenedAt() {
+        return openedAt;
+    }
+}
@@ -0,0 +1,36 @@
+package org.codeforamerica.messaging.providers;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Shows the state of each provider's circuit breaker at /actuator/circuitbreakers.
+ */
+@Component
+@Endpoint(id = "circuitbreakers")
+public class CircuitBreakerEndpoint {
+    private final List<CircuitBreaker> circuitBreakers;
+
+    public CircuitBreakerEndpoint(List<CircuitBreaker> circuitBreakers) {
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> circuitBreakers() {
+        Map<String, Map<String, Object>> states = new TreeMap<>();
+        circuitBreakers.forEach(circuitBreaker -> {
+            Map<String, Object> state = new HashMap<>();
+            state.put("state", circuitBreaker.getState());
+            state.put("consecutiveFailures", circuitBreaker.getConsecutiveFailures());
+            state.put("openedAt", circuitBreaker.getOpenedAt());
+            states.put(circuitBreaker.getProvider(), state);
+        });
+        return states;
+    }
+}
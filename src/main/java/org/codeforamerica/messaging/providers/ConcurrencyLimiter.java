@@ -0,0 +1,48 @@
+package org.codeforamerica.messaging.providers;
+
+import org.codeforamerica.messaging.exceptions.MessageSendException;
+import org.codeforamerica.messaging.exceptions.ProviderUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the number of requests in flight to a provider, so the number of job workers can be raised well past what a
+ * single provider should be sent at once. Each provider gateway has its own limiter, so a slow provider only holds up
+ * its own sends.
+ * <p>
+ * A request that can't get a permit in time was never sent, so it fails with {@link ProviderUnavailableException}
+ * and is deferred rather than counted as a failed attempt.
+ */
+public class ConcurrencyLimiter {
+    private final String provider;
+    private final Semaphore permits;
+    private final Duration waitTimeout;
+
+    public ConcurrencyLimiter(String provider, int maxRequests, Duration waitTimeout) {
+        this.provider = provider;
+        this.permits = new Semaphore(maxRequests, true);
+        this.waitTimeout = waitTimeout;
+    }
+
+    public <T> T call(ProviderRequest<T> request) throws MessageSendException {
+        try {
+            if (!permits.tryAcquire(waitTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new ProviderUnavailableException("Timed out waiting to send to " + provider, waitTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProviderUnavailableException("Interrupted waiting to send to " + provider, waitTimeout);
+        }
+        try {
+            return request.send();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+}
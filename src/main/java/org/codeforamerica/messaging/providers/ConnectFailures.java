@@ -0,0 +1,37 @@
+package org.codeforamerica.messaging.providers;
+
+import org.apache.http.conn.ConnectTimeoutException;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+/**
+ * Tells connection errors that happened before a request reached the provider apart from the rest. Only those are
+ * safe to send again: once the connection is open the provider may have accepted the request even though we never
+ * saw the response, most commonly when the read times out, and sending it again could deliver the message twice.
+ */
+public final class ConnectFailures {
+    private static final String CONNECT_TIMED_OUT = "connect timed out";
+
+    private ConnectFailures() {
+    }
+
+    public static boolean isConnectFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException
+                    || cause instanceof NoRouteToHostException
+                    || cause instanceof UnknownHostException
+                    || cause instanceof ConnectTimeoutException) {
+                return true;
+            }
+            // HttpURLConnection reports connect and read timeouts with the same exception type
+            if (cause instanceof SocketTimeoutException && cause.getMessage() != null
+                    && cause.getMessage().toLowerCase().startsWith(CONNECT_TIMED_OUT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
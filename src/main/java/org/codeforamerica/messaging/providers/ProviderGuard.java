@@ -0,0 +1,36 @@
+package org.codeforamerica.messaging.providers;
+
+import org.codeforamerica.messaging.exceptions.MessageSendException;
+
+import java.time.Duration;
+
+/**
+ * Sends a request to a provider through its circuit breaker, rate limiter and concurrency limiter, in that order:
+ * <ol>
+ *     <li>An open circuit defers the send before it uses up rate limit tokens or waits for a permit.</li>
+ *     <li>Rate limit tokens are taken before waiting for a permit, so a throttled send doesn't hold one.</li>
+ *     <li>Only the request itself goes through {@link CircuitBreaker#call}, so waiting on our own limits never opens
+ *     or closes the circuit.</li>
+ * </ol>
+ */
+public class ProviderGuard {
+    private final CircuitBreaker circuitBreaker;
+    private final ProviderRateLimiter rateLimiter;
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    public ProviderGuard(String provider, CircuitBreaker circuitBreaker, ProviderRateLimiter rateLimiter,
+            int maxConcurrentRequests, Duration concurrencyWaitTimeout) {
+        this.circuitBreaker = circuitBreaker;
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = new ConcurrencyLimiter(provider, maxConcurrentRequests, concurrencyWaitTimeout);
+    }
+
+    /**
+     * @param messageCount Number of messages the request sends, taken from the rate limit
+     */
+    public <T> T send(int messageCount, ProviderRequest<T> request) throws MessageSendException {
+        circuitBreaker.checkAvailable();
+        rateLimiter.acquire(messageCount);
+        return concurrencyLimiter.call(() -> circuitBreaker.call(request));
+    }
+}
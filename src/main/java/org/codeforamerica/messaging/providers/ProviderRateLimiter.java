@@ -0,0 +1,55 @@
+package org.codeforamerica.messaging.providers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.codeforamerica.messaging.exceptions.ProviderRateLimitedException;
+import org.codeforamerica.messaging.repositories.ProviderRateLimitRepository;
+
+import java.time.Duration;
+
+/**
+ * Keeps sends to a provider account under its throughput limit across every instance, using a token bucket stored
+ * in Postgres. A send that can't get a token fails with {@link ProviderRateLimitedException} before anything is sent,
+ * so it can be tried again later instead of being rejected by the provider.
+ */
+@Slf4j
+public class ProviderRateLimiter {
+    static final Duration MIN_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final String provider;
+    private final String rateLimitKey;
+    private final boolean enabled;
+    private final double tokensPerSecond;
+    private final double capacity;
+    private final ProviderRateLimitRepository providerRateLimitRepository;
+
+    /**
+     * @param provider        Provider name used in errors
+     * @param sender          Account the limit applies to, such as a messaging service or sending domain
+     * @param tokensPerSecond Sustained number of messages per second
+     * @param capacity        Number of messages that can be sent in a burst
+     */
+    public ProviderRateLimiter(String provider, String sender, boolean enabled, double tokensPerSecond,
+            double capacity, ProviderRateLimitRepository providerRateLimitRepository) {
+        this.provider = provider;
+        this.rateLimitKey = provider.toLowerCase() + ":" + sender;
+        this.enabled = enabled;
+        this.tokensPerSecond = tokensPerSecond;
+        this.capacity = capacity;
+        this.providerRateLimitRepository = providerRateLimitRepository;
+    }
+
+    public void acquire(int permits) throws ProviderRateLimitedException {
+        if (!enabled || providerRateLimitRepository.tryAcquire(rateLimitKey, permits, tokensPerSecond, capacity) > 0) {
+            return;
+        }
+        double availableTokens = providerRateLimitRepository.findAvailableTokens(rateLimitKey, tokensPerSecond, capacity)
+                .orElse(0.0);
+        Duration retryAfter = Duration.ofMillis((long) Math.ceil((1 - availableTokens) / tokensPerSecond * 1000));
+        log.info("Rate limited by {}, retrying after {}", provider, retryAfter);
+        throw new ProviderRateLimitedException(provider, retryAfter.compareTo(MIN_RETRY_AFTER) < 0 ? MIN_RETRY_AFTER : retryAfter);
+    }
+
+    public ProviderRateLimitedException rateLimited() {
+        return new ProviderRateLimitedException(provider, MIN_RETRY_AFTER);
+    }
+}
@@ -0,0 +1,8 @@
+package org.codeforamerica.messaging.providers;
+
+import org.codeforamerica.messaging.exceptions.MessageSendException;
+
+@FunctionalInterface
+public interface ProviderRequest<T> {
+    T send() throws MessageSendException;
+}
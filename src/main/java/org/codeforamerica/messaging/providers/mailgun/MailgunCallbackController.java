@@ -2,10 +2,10 @@ package org.codeforamerica.messaging.providers.mailgun;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.slf4j.Slf4j;
-import org.codeforamerica.messaging.jobs.EmailMessageStatusUpdateJobRequest;
 import org.codeforamerica.messaging.models.MessageStatus;
+import org.codeforamerica.messaging.models.StatusEvent;
 import org.codeforamerica.messaging.services.EmailService;
-import org.jobrunr.scheduling.JobRequestScheduler;
+import org.codeforamerica.messaging.services.StatusEventService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -22,15 +22,15 @@ import java.util.Map;
 public class MailgunCallbackController {
     private final EmailService emailService;
     private final MailgunSignatureVerificationService mailgunSignatureVerificationService;
-    private final JobRequestScheduler jobRequestScheduler;
+    private final StatusEventService statusEventService;
 
 
     public MailgunCallbackController(EmailService emailService,
             MailgunSignatureVerificationService mailgunSignatureVerificationService,
-            JobRequestScheduler jobRequestScheduler) {
+            StatusEventService statusEventService) {
         this.emailService = emailService;
         this.mailgunSignatureVerificationService = mailgunSignatureVerificationService;
-        this.jobRequestScheduler = jobRequestScheduler;
+        this.statusEventService = statusEventService;
     }
 
     @PostMapping(path = "/status")
@@ -41,22 +41,35 @@ public class MailgunCallbackController {
             log.error("Signature verification failed. Provider message id: {}", providerMessageId);
             return new ResponseEntity<>("Unauthorized", HttpStatus.UNAUTHORIZED);
         }
-        String rawEmailStatus = requestJSON.at("/event-data/event").textValue();
-        if (rawEmailStatus.equals("unsubscribed")) {
-            String unsubscribedEmail = requestJSON.at("/event-data/recipient").textValue();
-            emailService.unsubscribe(unsubscribedEmail);
-        } else {
-            enqueueStatusUpdate(requestJSON, providerMessageId, rawEmailStatus);
+        try {
+            String rawEmailStatus = requestJSON.at("/event-data/event").textValue();
+            if (rawEmailStatus.equals("unsubscribed")) {
+                String unsubscribedEmail = requestJSON.at("/event-data/recipient").textValue();
+                emailService.unsubscribe(unsubscribedEmail);
+            } else {
+                recordStatusUpdate(requestJSON, providerMessageId, rawEmailStatus);
+            }
+        } catch (RuntimeException e) {
+            // Mailgun retries webhooks that fail, and the retry reuses the token
+            mailgunSignatureVerificationService.forgetToken(requestJSON);
+            throw e;
         }
         return ResponseEntity.ok().build();
     }
 
-    private void enqueueStatusUpdate(JsonNode requestJSON, String providerMessageId,
+    private void recordStatusUpdate(JsonNode requestJSON, String providerMessageId,
             String rawEmailStatus) {
+        String toEmail = requestJSON.at("/event-data/recipient").textValue();
         MessageStatus newEmailStatus = mapMailgunStatustoMessageStatus(rawEmailStatus);
         Map<String, String> providerError = newEmailStatus.hadError() ? buildProviderError(requestJSON, newEmailStatus) : null;
-        jobRequestScheduler.enqueue(
-                new EmailMessageStatusUpdateJobRequest(providerMessageId, rawEmailStatus, newEmailStatus, providerError));
+        statusEventService.record(StatusEvent.builder()
+                .channel(StatusEvent.Channel.email)
+                .providerMessageId(providerMessageId)
+                .toEmail(toEmail)
+                .rawStatus(rawEmailStatus)
+                .status(newEmailStatus)
+                .providerError(providerError)
+                .build());
     }
 
     private static Map<String, String> buildProviderError(JsonNode requestJSON, MessageStatus status) {
@@ -1,32 +1,52 @@
 package org.codeforamerica.messaging.providers.mailgun;
 
 import com.mailgun.api.v3.MailgunMessagesApi;
-import com.mailgun.client.MailgunClient;
 import com.mailgun.model.message.MessageResponse;
 import feign.FeignException;
 import lombok.extern.slf4j.Slf4j;
 import org.codeforamerica.messaging.exceptions.MessageSendException;
 import org.codeforamerica.messaging.models.EmailMessage;
+import org.codeforamerica.messaging.providers.CircuitBreaker;
+import org.codeforamerica.messaging.providers.ConnectFailures;
+import org.codeforamerica.messaging.providers.ProviderGuard;
+import org.codeforamerica.messaging.providers.ProviderRateLimiter;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @Slf4j
 public class MailgunGateway {
+    public static final int MAX_BATCH_SIZE = 1000;
+    private static final String SUBJECT_VARIABLE = "subject";
+    private static final String BODY_VARIABLE = "body";
 
-    @Value("${mailgun.api.key}")
-    private String mailgunApiKey;
+    private final MailgunMessagesApi mailgunMessagesApi;
+    private final ProviderRateLimiter rateLimiter;
+    private final ProviderGuard providerGuard;
     @Value("${mailgun.api.domain}")
     private String mailgunDomain;
     @Value("${mailgun.api.from}")
     private String from;
 
-    public EmailMessage sendMessage(String toEmail, String body, String subject) throws MessageSendException {
-        MailgunMessagesApi mailgunMessagesApi = MailgunClient.config(mailgunApiKey)
-                .createApi(MailgunMessagesApi.class);
+    public MailgunGateway(MailgunMessagesApi mailgunMessagesApi,
+            @Value("${mailgun.concurrency.max-requests}") int maxConcurrentRequests,
+            @Value("${mailgun.concurrency.wait-timeout-in-millis}") long concurrencyWaitTimeoutMillis,
+            @Qualifier("mailgunRateLimiter") ProviderRateLimiter rateLimiter,
+            @Qualifier("mailgunCircuitBreaker") CircuitBreaker circuitBreaker) {
+        this.mailgunMessagesApi = mailgunMessagesApi;
+        this.rateLimiter = rateLimiter;
+        this.providerGuard = new ProviderGuard("Mailgun", circuitBreaker, rateLimiter, maxConcurrentRequests,
+                Duration.ofMillis(concurrencyWaitTimeoutMillis));
+    }
 
+    public EmailMessage sendMessage(String toEmail, String body, String subject) throws MessageSendException {
         com.mailgun.model.message.Message mailgunMessage =
                 com.mailgun.model.message.Message.builder()
                         .from(from)
@@ -35,12 +55,7 @@ public class MailgunGateway {
                         .text(body)
                         .build();
 
-        MessageResponse response;
-        try {
-            response = mailgunMessagesApi.sendMessage(mailgunDomain, mailgunMessage);
-        } catch (FeignException e) {
-            throw new MessageSendException(e.getMessage());
-        }
+        MessageResponse response = send(mailgunMessage, 1);
 
         return EmailMessage.builder()
                 .fromEmail(from)
@@ -52,6 +67,62 @@ public class MailgunGateway {
                 .build();
     }
 
+    /**
+     * Sends already rendered emails with a single Mailgun API call. Each recipient's subject and body are passed as
+     * recipient variables, so every recipient gets their own email and the whole batch shares one provider message
+     * id. Recipients must be unique within a batch.
+     *
+     * @param emailMessages Unsaved emails with a recipient, subject and body
+     * @return The same emails with the sender and provider message id filled in
+     */
+    public List<EmailMessage> sendMessages(List<EmailMessage> emailMessages) throws MessageSendException {
+        if (emailMessages.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Cannot send more than %d emails in a batch".formatted(MAX_BATCH_SIZE));
+        }
+        Map<String, Object> recipientVariables = new LinkedHashMap<>();
+        emailMessages.forEach(emailMessage -> recipientVariables.put(emailMessage.getToEmail(), Map.of(
+                SUBJECT_VARIABLE, emailMessage.getSubject(),
+                BODY_VARIABLE, emailMessage.getBody())));
+
+        com.mailgun.model.message.Message mailgunMessage =
+                com.mailgun.model.message.Message.builder()
+                        .from(from)
+                        .to(List.copyOf(recipientVariables.keySet()))
+                        .subject("%recipient." + SUBJECT_VARIABLE + "%")
+                        .text("%recipient." + BODY_VARIABLE + "%")
+                        .recipientVariables(recipientVariables)
+                        .build();
+
+        MessageResponse response = send(mailgunMessage, emailMessages.size());
+
+        String providerMessageId = cleanupProviderId(response.getId());
+        OffsetDateTime providerCreatedAt = OffsetDateTime.now();
+        emailMessages.forEach(emailMessage -> {
+            emailMessage.setFromEmail(from);
+            emailMessage.setProviderMessageId(providerMessageId);
+            emailMessage.setProviderCreatedAt(providerCreatedAt);
+        });
+        return emailMessages;
+    }
+
+    private MessageResponse send(com.mailgun.model.message.Message mailgunMessage, int recipientCount)
+            throws MessageSendException {
+        return providerGuard.send(recipientCount, () -> {
+            try {
+                return mailgunMessagesApi.sendMessage(mailgunDomain, mailgunMessage);
+            } catch (FeignException.TooManyRequests e) {
+                throw rateLimiter.rateLimited();
+            } catch (FeignException e) {
+                if (e.status() < 0) {
+                    // I/O errors have no status, and only a failed connect means Mailgun never got the request
+                    throw new MessageSendException(e.getMessage(), ConnectFailures.isConnectFailure(e));
+                }
+                // Requests Mailgun rejected won't succeed if sent again, but server errors may
+                throw new MessageSendException(e.getMessage(), e.status() >= 500);
+            }
+        });
+    }
+
     private String cleanupProviderId(String providerId) {
         return providerId.replace("<", "").replace(">", "");
     }
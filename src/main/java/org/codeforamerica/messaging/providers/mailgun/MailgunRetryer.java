@@ -0,0 +1,30 @@
+package org.codeforamerica.messaging.providers.mailgun;
+
+import feign.RetryableException;
+import feign.Retryer;
+import org.codeforamerica.messaging.providers.ConnectFailures;
+
+/**
+ * Retries Mailgun requests that failed to connect, or that Mailgun asked us to retry, but not other I/O errors such as
+ * read timeouts, since Mailgun may already have accepted those requests.
+ */
+public class MailgunRetryer implements Retryer {
+    private final Retryer delegate;
+
+    public MailgunRetryer(Retryer delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void continueOrPropagate(RetryableException e) {
+        if (e.status() < 0 && !ConnectFailures.isConnectFailure(e)) {
+            throw e;
+        }
+        delegate.continueOrPropagate(e);
+    }
+
+    @Override
+    public Retryer clone() {
+        return new MailgunRetryer(delegate.clone());
+    }
+}
@@ -1,51 +1,139 @@
 package org.codeforamerica.messaging.providers.mailgun;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.codeforamerica.messaging.repositories.MailgunWebhookTokenRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
-import java.math.BigInteger;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Verifies Mailgun webhook signatures, and rejects replayed webhooks. A webhook is only accepted if its timestamp is
+ * recent and its token hasn't been seen within that time. Seen tokens are stored in Postgres, so a webhook replayed to
+ * a different instance is rejected too.
+ */
 @Service
 @Slf4j
 public class MailgunSignatureVerificationService {
-    @Value("${mailgun.webhook.signing.key}")
-    private String mailgunWebhookSigningKey;
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private final ThreadLocal<Mac> mac;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final MailgunWebhookTokenRepository mailgunWebhookTokenRepository;
 
-    Mac mac;
+    @Autowired
+    public MailgunSignatureVerificationService(@Value("${mailgun.webhook.signing.key}") String mailgunWebhookSigningKey,
+            @Value("${mailgun.webhook.max-age-in-seconds}") long maxAgeSeconds,
+            MailgunWebhookTokenRepository mailgunWebhookTokenRepository) {
+        this(mailgunWebhookSigningKey, Duration.ofSeconds(maxAgeSeconds), mailgunWebhookTokenRepository,
+                Clock.systemUTC());
+    }
 
-    @PostConstruct
-    public void initializeMac() {
-        SecretKeySpec secretKeySpec = new SecretKeySpec(mailgunWebhookSigningKey.getBytes(), "HmacSHA256");
-        try {
-            this.mac = Mac.getInstance("HmacSHA256");
-            mac.init(secretKeySpec);
-        } catch (NoSuchAlgorithmException | InvalidKeyException ex) {
-            log.error("Error initializing MailgunSignatureVerificationService", ex);
-        }
+    MailgunSignatureVerificationService(String mailgunWebhookSigningKey, Duration maxAge,
+            MailgunWebhookTokenRepository mailgunWebhookTokenRepository, Clock clock) {
+        SecretKeySpec signingKey = new SecretKeySpec(mailgunWebhookSigningKey.getBytes(StandardCharsets.UTF_8),
+                HMAC_SHA256);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_SHA256);
+                mac.init(signingKey);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.mailgunWebhookTokenRepository = mailgunWebhookTokenRepository;
     }
 
     public boolean verifySignature(JsonNode requestJSON) {
-        String timeStamp = requestJSON.at("/signature/timestamp").textValue();
+        String timestamp = requestJSON.at("/signature/timestamp").textValue();
         String token = requestJSON.at("/signature/token").textValue();
-        String providedSignature = requestJSON.at("/signature/signature").textValue();
+        byte[] providedSignature = decodeHex(requestJSON.at("/signature/signature").textValue());
+        if (timestamp == null || token == null || providedSignature == null) {
+            return false;
+        }
+
+        Mac mac = this.mac.get();
+        mac.update(timestamp.getBytes(StandardCharsets.UTF_8));
+        byte[] computedSignature = mac.doFinal(token.getBytes(StandardCharsets.UTF_8));
+        if (!MessageDigest.isEqual(computedSignature, providedSignature)) {
+            return false;
+        }
+        Instant signedAt = parseTimestamp(timestamp);
+        return signedAt != null && isRecent(signedAt) && isFirstUse(token, signedAt);
+    }
+
+    private byte[] decodeHex(String signature) {
+        if (signature == null) {
+            return null;
+        }
+        try {
+            return HexFormat.of().parseHex(signature);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 
+    private Instant parseTimestamp(String timestamp) {
         try {
-            Mac clonedMac = (Mac) this.mac.clone(); // Clone as javax.crypto is not thread safe
-            byte[] hmacSha256 = clonedMac.doFinal((timeStamp+token).getBytes());
-            String hmacSha256InHex = String.format("%064x", new BigInteger(1, hmacSha256));
-            log.info("timeStamp: {}, token: {}, providedSignature: {}, computedSignature: {}", timeStamp, token, providedSignature, hmacSha256InHex);
-            return hmacSha256InHex.equals(providedSignature);
-        } catch (CloneNotSupportedException e) {
-            log.error("Error cloning Mac", e);
+            return Instant.ofEpochSecond(Long.parseLong(timestamp));
+        } catch (NumberFormatException e) {
+            return null;
         }
-        return false;
     }
 
+    private boolean isRecent(Instant signedAt) {
+        Instant now = clock.instant();
+        if (signedAt.isBefore(now.minus(maxAge)) || signedAt.isAfter(now.plus(maxAge))) {
+            log.warn("Rejecting Mailgun webhook signed at {}", signedAt);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * A token only needs to be remembered until its timestamp is too old to pass {@link #isRecent}.
+     */
+    private boolean isFirstUse(String token, Instant signedAt) {
+        OffsetDateTime expiresAt = OffsetDateTime.ofInstant(signedAt.plus(maxAge), ZoneOffset.UTC);
+        if (mailgunWebhookTokenRepository.tryRecord(token, expiresAt, OffsetDateTime.now(clock)) == 0) {
+            log.warn("Rejecting replayed Mailgun webhook");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the token of a verified webhook that couldn't be processed, so Mailgun's retry of it isn't rejected as
+     * a replay.
+     */
+    public void forgetToken(JsonNode requestJSON) {
+        String token = requestJSON.at("/signature/token").textValue();
+        if (token != null) {
+            mailgunWebhookTokenRepository.forget(token);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${mailgun.webhook.max-age-in-seconds}",
+            initialDelayString = "${mailgun.webhook.max-age-in-seconds}", timeUnit = TimeUnit.SECONDS)
+    public void deleteExpiredTokens() {
+        int deleted = mailgunWebhookTokenRepository.deleteExpired(OffsetDateTime.now(clock));
+        log.info("Deleted {} expired Mailgun webhook tokens", deleted);
+    }
 }
@@ -2,12 +2,11 @@ package org.codeforamerica.messaging.providers.twilio;
 
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
-import org.codeforamerica.messaging.jobs.SmsMessageStatusUpdateJobRequest;
-import org.codeforamerica.messaging.models.Message;
 import org.codeforamerica.messaging.models.MessageStatus;
 import org.codeforamerica.messaging.models.PhoneNumber;
+import org.codeforamerica.messaging.models.StatusEvent;
 import org.codeforamerica.messaging.services.SmsService;
-import org.jobrunr.scheduling.JobRequestScheduler;
+import org.codeforamerica.messaging.services.StatusEventService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -25,15 +24,15 @@ public class TwilioCallbackController {
 
     private final SmsService smsService;
     private final TwilioSignatureVerificationService twilioSignatureVerificationService;
-    private final JobRequestScheduler jobRequestScheduler;
+    private final StatusEventService statusEventService;
 
 
     public TwilioCallbackController(SmsService smsService,
             TwilioSignatureVerificationService twilioSignatureVerificationService,
-            JobRequestScheduler jobRequestScheduler) {
+            StatusEventService statusEventService) {
         this.twilioSignatureVerificationService = twilioSignatureVerificationService;
         this.smsService = smsService;
-        this.jobRequestScheduler = jobRequestScheduler;
+        this.statusEventService = statusEventService;
     }
 
     @PostMapping(path = "/status", consumes = {MediaType.APPLICATION_FORM_URLENCODED_VALUE})
@@ -45,20 +44,24 @@ public class TwilioCallbackController {
         }
         String rawMessageStatus = request.getParameter("MessageStatus");
         if (!ignorable(rawMessageStatus)) {
-            enqueueStatusUpdate(request, providerMessageId, rawMessageStatus);
+            recordStatusUpdate(request, providerMessageId, rawMessageStatus);
         }
         return ResponseEntity.ok().build();
     }
 
-    private void enqueueStatusUpdate(HttpServletRequest request, String providerMessageId,
+    private void recordStatusUpdate(HttpServletRequest request, String providerMessageId,
             String rawMessageStatus) {
         MessageStatus newSmsStatus = mapTwilioStatusToMessageStatus(rawMessageStatus);
         String fromPhone = request.getParameter("From");
         Map<String, String> providerError = newSmsStatus.hadError() ? buildProviderError(request) : null;
-        jobRequestScheduler.enqueue(
-                new SmsMessageStatusUpdateJobRequest(providerMessageId, rawMessageStatus, newSmsStatus,
-                        PhoneNumber.valueOf(fromPhone),
-                        providerError));
+        statusEventService.record(StatusEvent.builder()
+                .channel(StatusEvent.Channel.sms)
+                .providerMessageId(providerMessageId)
+                .rawStatus(rawMessageStatus)
+                .status(newSmsStatus)
+                .fromPhone(PhoneNumber.valueOf(fromPhone))
+                .providerError(providerError)
+                .build());
     }
 
     @PostMapping(path = "/inbound", consumes = {MediaType.APPLICATION_FORM_URLENCODED_VALUE})
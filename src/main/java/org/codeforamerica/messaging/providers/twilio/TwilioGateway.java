@@ -1,13 +1,21 @@
 package org.codeforamerica.messaging.providers.twilio;
 
-import com.twilio.Twilio;
+import com.twilio.exception.ApiConnectionException;
+import com.twilio.exception.ApiException;
+import com.twilio.http.TwilioRestClient;
 import lombok.extern.slf4j.Slf4j;
 import org.codeforamerica.messaging.exceptions.MessageSendException;
 import org.codeforamerica.messaging.models.PhoneNumber;
 import org.codeforamerica.messaging.models.SmsMessage;
+import org.codeforamerica.messaging.providers.CircuitBreaker;
+import org.codeforamerica.messaging.providers.ConnectFailures;
+import org.codeforamerica.messaging.providers.ProviderGuard;
+import org.codeforamerica.messaging.providers.ProviderRateLimiter;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
 
@@ -16,30 +24,49 @@ import java.time.ZonedDateTime;
 public class TwilioGateway {
 
     public static final PhoneNumber DEFAULT_FROM_PHONE = PhoneNumber.valueOf("0000000000");
-    @Value("${twilio.account.sid}")
-    private String twilioAccountSid;
-    @Value("${twilio.auth.token}")
-    private String twilioAuthToken;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private final TwilioRestClient twilioRestClient;
+    private final ProviderRateLimiter rateLimiter;
+    private final ProviderGuard providerGuard;
     @Value("${twilio.messaging.service.sid}")
     private String twilioMessagingServiceSid;
 
+    public TwilioGateway(TwilioRestClient twilioRestClient,
+            @Value("${twilio.concurrency.max-requests}") int maxConcurrentRequests,
+            @Value("${twilio.concurrency.wait-timeout-in-millis}") long concurrencyWaitTimeoutMillis,
+            @Qualifier("twilioRateLimiter") ProviderRateLimiter rateLimiter,
+            @Qualifier("twilioCircuitBreaker") CircuitBreaker circuitBreaker) {
+        this.twilioRestClient = twilioRestClient;
+        this.rateLimiter = rateLimiter;
+        this.providerGuard = new ProviderGuard("Twilio", circuitBreaker, rateLimiter, maxConcurrentRequests,
+                Duration.ofMillis(concurrencyWaitTimeoutMillis));
+    }
+
     private static OffsetDateTime toOffsetDateTime(ZonedDateTime zonedDateTime) {
         return zonedDateTime == null ? null : zonedDateTime.toOffsetDateTime();
     }
 
     public SmsMessage sendMessage(String to, String body) throws MessageSendException {
-        com.twilio.rest.api.v2010.account.Message twilioMessage =
-                null;
-        try {
-            Twilio.init(twilioAccountSid, twilioAuthToken);
-            twilioMessage = com.twilio.rest.api.v2010.account.Message.creator(
-                            new com.twilio.type.PhoneNumber(to),
-                            twilioMessagingServiceSid,
-                            body)
-                    .create();
-        } catch (com.twilio.exception.TwilioException e) {
-            throw new MessageSendException(e.getMessage());
-        }
+        com.twilio.rest.api.v2010.account.Message twilioMessage = providerGuard.send(1, () -> {
+            try {
+                return com.twilio.rest.api.v2010.account.Message.creator(
+                                new com.twilio.type.PhoneNumber(to),
+                                twilioMessagingServiceSid,
+                                body)
+                        .create(twilioRestClient);
+            } catch (ApiException e) {
+                if (e.getStatusCode() != null && e.getStatusCode() == TOO_MANY_REQUESTS) {
+                    throw rateLimiter.rateLimited();
+                }
+                // Requests Twilio rejected won't succeed if sent again, but server errors may
+                throw new MessageSendException(e.getMessage(), e.getStatusCode() == null || e.getStatusCode() >= 500);
+            } catch (ApiConnectionException e) {
+                // Twilio may have created the message if the connection failed after the request was sent
+                throw new MessageSendException(e.getMessage(), ConnectFailures.isConnectFailure(e));
+            } catch (com.twilio.exception.TwilioException e) {
+                throw new MessageSendException(e.getMessage());
+            }
+        });
 
         return SmsMessage.builder()
                 .fromPhone(DEFAULT_FROM_PHONE)
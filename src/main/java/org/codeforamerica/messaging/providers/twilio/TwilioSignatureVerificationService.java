@@ -1,30 +1,68 @@
 package org.codeforamerica.messaging.providers.twilio;
 
-import com.twilio.security.RequestValidator;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.*;
 
+/**
+ * Verifies Twilio request signatures the same way as the SDK's RequestValidator, without setting up a new Mac for
+ * every request. Signatures are checked on every callback and inbound SMS.
+ */
 @Service
 @Slf4j
 public class TwilioSignatureVerificationService {
-    @Value("${twilio.auth.token}")
-    private String TWILIO_AUTH_TOKEN;
+    private static final String HMAC_SHA1 = "HmacSHA1";
+    private final ThreadLocal<Mac> mac;
+
+    public TwilioSignatureVerificationService(@Value("${twilio.auth.token}") String twilioAuthToken) {
+        SecretKeySpec signingKey = new SecretKeySpec(twilioAuthToken.getBytes(StandardCharsets.UTF_8), HMAC_SHA1);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_SHA1);
+                mac.init(signingKey);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
 
     public boolean verifySignature(HttpServletRequest httpRequest) {
-        RequestValidator requestValidator = new RequestValidator(TWILIO_AUTH_TOKEN);
-        return requestValidator.validate(
-                getRequestUrlAndQueryString(httpRequest),
-                extractPostParams(httpRequest),
-                httpRequest.getHeader("X-Twilio-Signature"));
+        byte[] signature = decodeSignature(httpRequest.getHeader("X-Twilio-Signature"));
+        if (signature == null) {
+            return false;
+        }
+        String requestUrl = getRequestUrlAndQueryString(httpRequest);
+        byte[] postParams = getSortedPostParams(httpRequest).getBytes(StandardCharsets.UTF_8);
+        // Like the SDK, accept a signature made with or without the port in the url
+        return MessageDigest.isEqual(signature, sign(withoutPort(requestUrl), postParams)) ||
+                MessageDigest.isEqual(signature, sign(withPort(requestUrl), postParams));
+    }
+
+    private byte[] decodeSignature(String signature) {
+        if (signature == null) {
+            return null;
+        }
+        try {
+            return Base64.getDecoder().decode(signature);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String requestUrl, byte[] postParams) {
+        Mac mac = this.mac.get();
+        mac.update(requestUrl.getBytes(StandardCharsets.UTF_8));
+        return mac.doFinal(postParams);
     }
 
     private String getRequestUrlAndQueryString(HttpServletRequest request) {
@@ -36,19 +74,73 @@ public class TwilioSignatureVerificationService {
         return queryString == null || queryString.isBlank() ? requestUrl : requestUrl + "?" + queryString;
     }
 
-    private Map<String, String> extractPostParams(HttpServletRequest request) {
-        List<String> queryStringKeys = getQueryStringKeys(request.getQueryString());
-        return request.getParameterMap().entrySet().stream()
-                .filter(e -> !queryStringKeys.contains(e.getKey()))
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue()[0]));
+    /**
+     * Twilio signs the url followed by each POST parameter's name and value, sorted by name. Parameters from the
+     * query string are already part of the url.
+     */
+    private String getSortedPostParams(HttpServletRequest request) {
+        Set<String> queryStringKeys = getQueryStringKeys(request.getQueryString());
+        Map<String, String[]> parameterMap = request.getParameterMap();
+        List<String> postParamKeys = new ArrayList<>(parameterMap.size());
+        for (String key : parameterMap.keySet()) {
+            if (!queryStringKeys.contains(key)) {
+                postParamKeys.add(key);
+            }
+        }
+        Collections.sort(postParamKeys);
+        StringBuilder postParams = new StringBuilder();
+        for (String key : postParamKeys) {
+            postParams.append(key).append(parameterMap.get(key)[0]);
+        }
+        return postParams.toString();
+    }
+
+    private Set<String> getQueryStringKeys(String queryString) {
+        if (queryString == null || queryString.isBlank()) {
+            return Collections.emptySet();
+        }
+        Set<String> keys = new HashSet<>();
+        int start = 0;
+        while (start <= queryString.length()) {
+            int end = queryString.indexOf('&', start);
+            if (end == -1) {
+                end = queryString.length();
+            }
+            int equals = queryString.indexOf('=', start);
+            keys.add(queryString.substring(start, equals == -1 || equals > end ? end : equals));
+            start = end + 1;
+        }
+        return keys;
+    }
+
+    static String withoutPort(String url) {
+        int portStart = findPortStart(url);
+        return portStart == -1 ? url : url.substring(0, portStart) + url.substring(findHostEnd(url));
     }
 
-    private List<String> getQueryStringKeys(String queryString) {
-        if (queryString != null && !queryString.isBlank()) {
-            return Arrays.stream(queryString.split("&"))
-                    .map(pair -> pair.split("=")[0])
-                    .collect(Collectors.toList());
+    static String withPort(String url) {
+        if (findPortStart(url) != -1) {
+            return url;
         }
-        return Collections.emptyList();
+        int hostEnd = findHostEnd(url);
+        String defaultPort = url.startsWith("https:") ? ":443" : ":80";
+        return url.substring(0, hostEnd) + defaultPort + url.substring(hostEnd);
+    }
+
+    private static int findHostEnd(String url) {
+        int hostStart = url.indexOf("://") + 3;
+        for (int i = hostStart; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return url.length();
+    }
+
+    private static int findPortStart(String url) {
+        int hostStart = url.indexOf("://") + 3;
+        int portStart = url.lastIndexOf(':', findHostEnd(url) - 1);
+        return portStart >= hostStart ? portStart : -1;
     }
 }
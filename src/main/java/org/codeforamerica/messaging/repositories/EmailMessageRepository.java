@@ -3,10 +3,14 @@ package org.codeforamerica.messaging.repositories;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import org.codeforamerica.messaging.models.EmailMessage;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,7 +18,55 @@ public interface EmailMessageRepository extends CrudRepository<EmailMessage, Lon
 
     EmailMessage findFirstByProviderMessageId(String providerMessageId);
 
+    EmailMessage findFirstByProviderMessageIdAndToEmailIgnoreCase(String providerMessageId, String toEmail);
+
     List<EmailMessage> findAllByToEmailAndUpdateTimestampAfter(
         @NotBlank @Email String toEmail,
         OffsetDateTime updateTimestamp);
-}
\ No newline at end of file
+
+    /**
+     * Finds the status events that no email linked to a message can take yet, which includes emails saved before their
+     * message points at them.
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT e.id FROM status_event e
+            WHERE e.id IN (:statusEventIds)
+            AND NOT EXISTS (SELECT 1 FROM email_message em JOIN message m ON m.email_message_id = em.id
+                WHERE em.provider_message_id = e.provider_message_id
+                AND (e.to_email IS NULL OR lower(em.to_email) = lower(e.to_email)))
+            """)
+    List<Long> findStatusEventIdsWithoutEmailMessage(@Param("statusEventIds") Collection<Long> statusEventIds);
+
+    /**
+     * Applies the latest of the given status events for each email to the email and its message in one statement.
+     * Emails sent in a batch share a provider message id, so events are matched on recipient as well. Statuses that
+     * are not after the message's current status are ignored, as they are one at a time.
+     *
+     * @return The number of messages updated
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH latest_status_event AS (
+                SELECT DISTINCT ON (e.provider_message_id, lower(e.to_email))
+                    e.provider_message_id, e.to_email, e.status, e.raw_status, e.provider_error
+                FROM status_event e
+                WHERE e.id IN (:statusEventIds)
+                ORDER BY e.provider_message_id, lower(e.to_email), e.status DESC, e.id
+            ), updated_email_message AS (
+                UPDATE email_message em
+                SET provider_error = l.provider_error, update_timestamp = now(), version = em.version + 1
+                FROM latest_status_event l, message m
+                WHERE em.provider_message_id = l.provider_message_id
+                AND (l.to_email IS NULL OR lower(em.to_email) = lower(l.to_email))
+                AND m.email_message_id = em.id
+                AND (m.email_status IS NULL OR l.status > m.email_status)
+                RETURNING em.id, l.status, l.raw_status
+            )
+            UPDATE message m
+            SET email_status = u.status, raw_email_status = u.raw_status, update_timestamp = now(), version = m.version + 1
+            FROM updated_email_message u
+            WHERE m.email_message_id = u.id
+            AND (m.email_status IS NULL OR u.status > m.email_status)
+            """)
+    int applyStatusEvents(@Param("statusEventIds") Collection<Long> statusEventIds);
+}
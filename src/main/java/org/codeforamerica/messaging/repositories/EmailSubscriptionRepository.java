@@ -6,5 +6,4 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface EmailSubscriptionRepository extends CrudRepository<EmailSubscription, Long>  {
-    public EmailSubscription findFirstByEmailOrderByCreationTimestampDesc(String email);
 }
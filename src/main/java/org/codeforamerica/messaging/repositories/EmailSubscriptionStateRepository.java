@@ -0,0 +1,27 @@
+package org.codeforamerica.messaging.repositories;
+
+import org.codeforamerica.messaging.models.EmailSubscriptionState;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailSubscriptionStateRepository extends CrudRepository<EmailSubscriptionState, String> {
+    public List<EmailSubscriptionState> findAllByUnsubscribedTrue();
+
+    public List<EmailSubscriptionState> findAllByUpdateTimestampAfterOrderByUpdateTimestampAsc(OffsetDateTime updateTimestamp);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO email_subscription_state (email, unsubscribed, update_timestamp)
+            VALUES (:email, :unsubscribed, now())
+            ON CONFLICT (email) DO UPDATE
+            SET unsubscribed = excluded.unsubscribed, update_timestamp = excluded.update_timestamp
+            """)
+    public void upsert(@Param("email") String email, @Param("unsubscribed") boolean unsubscribed);
+}
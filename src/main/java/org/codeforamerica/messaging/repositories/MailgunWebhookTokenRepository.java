@@ -0,0 +1,43 @@
+package org.codeforamerica.messaging.repositories;
+
+import jakarta.transaction.Transactional;
+import org.codeforamerica.messaging.models.MailgunWebhookToken;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+
+@Repository
+public interface MailgunWebhookTokenRepository extends CrudRepository<MailgunWebhookToken, String> {
+    /**
+     * Records a token unless it was already recorded and hasn't expired, in one statement so instances never race
+     * each other.
+     *
+     * @return 1 if the token was recorded, 0 if it has been seen before
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO mailgun_webhook_token AS webhook_token (token, expires_at)
+            VALUES (:token, :expiresAt)
+            ON CONFLICT (token) DO UPDATE
+            SET expires_at = EXCLUDED.expires_at
+            WHERE webhook_token.expires_at <= :now
+            """)
+    public int tryRecord(@Param("token") String token,
+            @Param("expiresAt") OffsetDateTime expiresAt,
+            @Param("now") OffsetDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM mailgun_webhook_token WHERE token = :token")
+    public int forget(@Param("token") String token);
+
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM mailgun_webhook_token WHERE expires_at <= :now")
+    public int deleteExpired(@Param("now") OffsetDateTime now);
+}
@@ -1,7 +1,15 @@
 package org.codeforamerica.messaging.repositories;
 
+import jakarta.transaction.Transactional;
 import org.codeforamerica.messaging.models.MessageBatch;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 public interface MessageBatchRepository extends CrudRepository<MessageBatch, Long> {
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE message_batch SET message_ids_to_enqueue = NULL WHERE id = :id")
+    void clearMessageIdsToEnqueue(@Param("id") Long id);
 }
@@ -2,14 +2,12 @@ package org.codeforamerica.messaging.repositories;
 
 import org.codeforamerica.messaging.models.Message;
 import org.codeforamerica.messaging.models.MessageBatchMetrics;
-import org.codeforamerica.messaging.models.PhoneNumber;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
 import java.time.OffsetDateTime;
 import java.util.Collection;
-import java.util.List;
 
 public interface MessageRepository extends CrudRepository<Message, Long> {
     Collection<Message> findMessagesByMessageBatchId(long messageBatchId);
@@ -17,13 +15,13 @@ public interface MessageRepository extends CrudRepository<Message, Long> {
 
     @Query("""
             SELECT
-             SUM(CASE WHEN emailStatus = 'submission_succeeded' OR emailStatus = 'queued' OR emailStatus = 'sent' THEN 1 ELSE 0 END) AS queuedEmailCount,
+             SUM(CASE WHEN emailStatus = 'retrying' OR emailStatus = 'submission_succeeded' OR emailStatus = 'queued' OR emailStatus = 'sent' THEN 1 ELSE 0 END) AS queuedEmailCount,
              SUM(CASE WHEN emailStatus = 'submission_failed' OR emailStatus = 'failed' THEN 1 ELSE 0 END) AS failedEmailCount,
              SUM(CASE WHEN emailStatus = 'delivered' THEN 1 ELSE 0 END) AS deliveredEmailCount,
              SUM(CASE WHEN emailStatus = 'undelivered' THEN 1 ELSE 0 END) AS undeliveredEmailCount,
              SUM(CASE WHEN emailStatus = 'unsubscribed' THEN 1 ELSE 0 END) AS unsubscribedEmailCount,
              SUM(CASE WHEN emailStatus = 'unmapped' THEN 1 ELSE 0 END) AS unmappedEmailCount,
-             SUM(CASE WHEN smsStatus = 'submission_succeeded' OR smsStatus = 'queued' OR smsStatus = 'sent' THEN 1 ELSE 0 END) AS queuedSmsCount,
+             SUM(CASE WHEN smsStatus = 'retrying' OR smsStatus = 'submission_succeeded' OR smsStatus = 'queued' OR smsStatus = 'sent' THEN 1 ELSE 0 END) AS queuedSmsCount,
              SUM(CASE WHEN smsStatus = 'submission_failed' OR smsStatus = 'failed' THEN 1 ELSE 0 END) AS failedSmsCount,
              SUM(CASE WHEN smsStatus = 'delivered' THEN 1 ELSE 0 END) AS deliveredSmsCount,
              SUM(CASE WHEN smsStatus = 'undelivered' THEN 1 ELSE 0 END) AS undeliveredSmsCount,
@@ -34,15 +32,24 @@ public interface MessageRepository extends CrudRepository<Message, Long> {
              """)
     MessageBatchMetrics getMetrics(Long messageBatchId);
 
+    // Messages with an error status (see MessageStatus.hadError) or waiting to be retried were not sent, so are not duplicates
     @Query("""
-           SELECT msg FROM Message msg WHERE
-            ((:toEmail IS NULL OR msg.toEmail = :toEmail) OR (:toPhone IS NULL OR msg.toPhone = :toPhone))
-            AND msg.templateVariant.template.name = :templateName
+           SELECT COUNT(msg) > 0 FROM Message msg WHERE
+            msg.smsDuplicateKey = :smsDuplicateKey
+            AND msg.smsStatus NOT IN ('retrying', 'duplicate', 'submission_failed', 'failed', 'undelivered')
             AND msg.updateTimestamp > :updateTimestamp
     """)
-    List<Message> findRecipientMessagesWithSameTemplateUpdatedRecently(
-        @Param("toEmail") String toEmail,
-        @Param("toPhone") PhoneNumber toPhone,
-        @Param("templateName") String templateName,
+    boolean existsSentSmsWithDuplicateKeyUpdatedAfter(
+        @Param("smsDuplicateKey") String smsDuplicateKey,
+        @Param("updateTimestamp") OffsetDateTime updateTimestamp);
+
+    @Query("""
+           SELECT COUNT(msg) > 0 FROM Message msg WHERE
+            msg.emailDuplicateKey = :emailDuplicateKey
+            AND msg.emailStatus NOT IN ('retrying', 'duplicate', 'submission_failed', 'failed', 'undelivered')
+            AND msg.updateTimestamp > :updateTimestamp
+    """)
+    boolean existsSentEmailWithDuplicateKeyUpdatedAfter(
+        @Param("emailDuplicateKey") String emailDuplicateKey,
         @Param("updateTimestamp") OffsetDateTime updateTimestamp);
 }
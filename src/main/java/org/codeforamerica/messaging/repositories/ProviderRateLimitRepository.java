@@ -0,0 +1,50 @@
+package org.codeforamerica.messaging.repositories;
+
+import jakarta.transaction.Transactional;
+import org.codeforamerica.messaging.models.ProviderRateLimit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ProviderRateLimitRepository extends CrudRepository<ProviderRateLimit, String> {
+    /**
+     * Refills the bucket and takes tokens from it in one statement, so instances never race each other. Tokens are
+     * taken whenever at least one is available, and taking more than are available leaves the bucket in debt until
+     * it refills. That lets a batch bigger than the bucket still be sent.
+     *
+     * @return 1 if the tokens were taken, 0 if the bucket is empty
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO provider_rate_limit AS rate_limit (rate_limit_key, tokens, refilled_at)
+            VALUES (:rateLimitKey, CAST(:capacity AS double precision) - :permits, now())
+            ON CONFLICT (rate_limit_key) DO UPDATE
+            SET tokens = LEAST(CAST(:capacity AS double precision), rate_limit.tokens
+                    + EXTRACT(EPOCH FROM now() - rate_limit.refilled_at) * CAST(:tokensPerSecond AS double precision))
+                    - :permits,
+                refilled_at = now()
+            WHERE LEAST(CAST(:capacity AS double precision), rate_limit.tokens
+                    + EXTRACT(EPOCH FROM now() - rate_limit.refilled_at) * CAST(:tokensPerSecond AS double precision)) >= 1
+            """)
+    public int tryAcquire(@Param("rateLimitKey") String rateLimitKey,
+            @Param("permits") int permits,
+            @Param("tokensPerSecond") double tokensPerSecond,
+            @Param("capacity") double capacity);
+
+    @Query(nativeQuery = true, value = """
+            SELECT CAST(LEAST(CAST(:capacity AS double precision), tokens
+                    + EXTRACT(EPOCH FROM now() - refilled_at) * CAST(:tokensPerSecond AS double precision))
+                AS double precision)
+            FROM provider_rate_limit
+            WHERE rate_limit_key = :rateLimitKey
+            """)
+    public Optional<Double> findAvailableTokens(@Param("rateLimitKey") String rateLimitKey,
+            @Param("tokensPerSecond") double tokensPerSecond,
+            @Param("capacity") double capacity);
+}
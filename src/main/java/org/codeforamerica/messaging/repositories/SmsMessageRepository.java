@@ -1,12 +1,61 @@
 package org.codeforamerica.messaging.repositories;
 
 import org.codeforamerica.messaging.models.SmsMessage;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface SmsMessageRepository extends CrudRepository<SmsMessage, Long> {
 
     SmsMessage findFirstByProviderMessageId(String providerMessageId);
 
-}
\ No newline at end of file
+    /**
+     * Finds the status events that no SMS linked to a message can take yet, which includes SMS saved before their
+     * message points at them.
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT e.id FROM status_event e
+            WHERE e.id IN (:statusEventIds)
+            AND NOT EXISTS (SELECT 1 FROM sms_message s JOIN message m ON m.sms_message_id = s.id
+                WHERE s.provider_message_id = e.provider_message_id)
+            """)
+    List<Long> findStatusEventIdsWithoutSmsMessage(@Param("statusEventIds") Collection<Long> statusEventIds);
+
+    /**
+     * Applies the latest of the given status events for each SMS to the SMS and its message in one statement.
+     * Statuses that are not after the message's current status are ignored, as they are one at a time.
+     *
+     * @return The number of messages updated
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH latest_status_event AS (
+                SELECT DISTINCT ON (e.provider_message_id)
+                    e.provider_message_id, e.status, e.raw_status, e.from_phone, e.provider_error
+                FROM status_event e
+                WHERE e.id IN (:statusEventIds)
+                ORDER BY e.provider_message_id, e.status DESC, e.id
+            ), updated_sms_message AS (
+                UPDATE sms_message s
+                SET from_phone = l.from_phone, provider_error = l.provider_error,
+                    update_timestamp = now(), version = s.version + 1
+                FROM latest_status_event l, message m
+                WHERE s.provider_message_id = l.provider_message_id
+                AND m.sms_message_id = s.id
+                AND (m.sms_status IS NULL OR l.status > m.sms_status)
+                RETURNING s.id, l.status, l.raw_status
+            )
+            UPDATE message m
+            SET sms_status = u.status, raw_sms_status = u.raw_status, update_timestamp = now(), version = m.version + 1
+            FROM updated_sms_message u
+            WHERE m.sms_message_id = u.id
+            AND (m.sms_status IS NULL OR u.status > m.sms_status)
+            """)
+    int applyStatusEvents(@Param("statusEventIds") Collection<Long> statusEventIds);
+}
@@ -0,0 +1,27 @@
+package org.codeforamerica.messaging.repositories;
+
+import org.codeforamerica.messaging.models.SmsSubscriptionState;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Repository
+public interface SmsSubscriptionStateRepository extends CrudRepository<SmsSubscriptionState, String> {
+    public List<SmsSubscriptionState> findAllByUnsubscribedTrue();
+
+    public List<SmsSubscriptionState> findAllByUpdateTimestampAfterOrderByUpdateTimestampAsc(OffsetDateTime updateTimestamp);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO sms_subscription_state (phone_number, unsubscribed, update_timestamp)
+            VALUES (:phoneNumber, :unsubscribed, now())
+            ON CONFLICT (phone_number) DO UPDATE
+            SET unsubscribed = excluded.unsubscribed, update_timestamp = excluded.update_timestamp
+            """)
+    public void upsert(@Param("phoneNumber") String phoneNumber, @Param("unsubscribed") boolean unsubscribed);
+}
@@ -0,0 +1,25 @@
+package org.codeforamerica.messaging.repositories;
+
+import org.codeforamerica.messaging.models.StatusEvent;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StatusEventRepository extends CrudRepository<StatusEvent, Long> {
+    /**
+     * Locks the oldest events that are ready to apply. Events locked by another instance are skipped, so instances
+     * can apply events at the same time without waiting on each other.
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT * FROM status_event
+            WHERE apply_after <= now()
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """)
+    public List<StatusEvent> lockNextStatusEvents(@Param("limit") int limit);
+}
@@ -0,0 +1,55 @@
+package org.codeforamerica.messaging.services;
+
+import org.apache.commons.collections4.map.LRUMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Remembers the duplicate keys of messages this instance sent within the duplicate suppression window, so repeated
+ * sends of the same message are suppressed without querying the database. A miss only means the message was not
+ * sent by this instance recently, and the database still has to be checked.
+ */
+@Component
+class DuplicateMessageCache {
+    private final boolean enabled;
+    private final Duration window;
+    private final Map<String, Instant> sentAtByDuplicateKey;
+
+    DuplicateMessageCache(@Value("${message.duplicate-cache.enabled}") boolean enabled,
+            @Value("${message.duplicate-cache.max-size}") int maxSize,
+            @Value("${message.duplicate-suppression-window-duration-in-hours}") long duplicateMessageSuppressionHours) {
+        this.enabled = enabled;
+        this.window = Duration.ofHours(duplicateMessageSuppressionHours);
+        this.sentAtByDuplicateKey = new LRUMap<>(maxSize);
+    }
+
+    boolean sentRecently(String duplicateKey) {
+        if (!enabled || duplicateKey == null) {
+            return false;
+        }
+        synchronized (sentAtByDuplicateKey) {
+            Instant sentAt = sentAtByDuplicateKey.get(duplicateKey);
+            if (sentAt == null) {
+                return false;
+            }
+            if (!sentAt.isAfter(Instant.now().minus(window))) {
+                sentAtByDuplicateKey.remove(duplicateKey);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    void put(String duplicateKey) {
+        if (!enabled || duplicateKey == null) {
+            return;
+        }
+        synchronized (sentAtByDuplicateKey) {
+            sentAtByDuplicateKey.put(duplicateKey, Instant.now());
+        }
+    }
+}
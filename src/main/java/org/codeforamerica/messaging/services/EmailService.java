@@ -6,15 +6,26 @@ import org.codeforamerica.messaging.exceptions.MessageSendException;
 import org.codeforamerica.messaging.exceptions.UnsubscribedException;
 import org.codeforamerica.messaging.models.EmailMessage;
 import org.codeforamerica.messaging.models.EmailSubscription;
+import org.codeforamerica.messaging.models.EmailSubscriptionState;
 import org.codeforamerica.messaging.models.MessageStatus;
 import org.codeforamerica.messaging.providers.mailgun.MailgunGateway;
 import org.codeforamerica.messaging.repositories.EmailMessageRepository;
 import org.codeforamerica.messaging.repositories.EmailSubscriptionRepository;
+import org.codeforamerica.messaging.repositories.EmailSubscriptionStateRepository;
 import org.codeforamerica.messaging.repositories.MessageRepository;
 import org.jobrunr.JobRunrException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
@@ -25,45 +36,110 @@ public class EmailService {
     private final EmailMessageRepository emailMessageRepository;
     private final MessageRepository messageRepository;
     private final EmailSubscriptionRepository emailSubscriptionRepository;
+    private final EmailSubscriptionStateRepository emailSubscriptionStateRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean subscriptionCacheEnabled;
+    private final UnsubscribedCache<String> unsubscribedCache = new UnsubscribedCache<>();
 
     public EmailService(MailgunGateway mailgunGateway, EmailMessageRepository emailMessageRepository,
-            MessageRepository messageRepository, EmailSubscriptionRepository emailSubscriptionRepository) {
+            MessageRepository messageRepository, EmailSubscriptionRepository emailSubscriptionRepository,
+            EmailSubscriptionStateRepository emailSubscriptionStateRepository, TransactionTemplate transactionTemplate,
+            @Value("${subscription-cache.enabled}") boolean subscriptionCacheEnabled) {
         this.mailgunGateway = mailgunGateway;
         this.emailMessageRepository = emailMessageRepository;
         this.messageRepository = messageRepository;
         this.emailSubscriptionRepository = emailSubscriptionRepository;
+        this.emailSubscriptionStateRepository = emailSubscriptionStateRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.subscriptionCacheEnabled = subscriptionCacheEnabled;
     }
 
+    /**
+     * Sends an email. The sent email is not saved here: the caller saves it along with the message it belongs to, so
+     * a status update never finds an email that isn't linked to its message yet.
+     */
     public EmailMessage sendEmailMessage(String toEmail, String body, String subject) throws MessageSendException {
-        if (unsubscribed(toEmail)) {
+        if (isUnsubscribed(toEmail)) {
             log.error("Skipping unsubscribed email");
             throw new UnsubscribedException();
         }
-        EmailMessage message = mailgunGateway.sendMessage(toEmail, body, subject);
-        return emailMessageRepository.save(message);
+        return mailgunGateway.sendMessage(toEmail, body, subject);
     }
 
-    private boolean unsubscribed(String toEmail) {
-        EmailSubscription latestSubscription = emailSubscriptionRepository.findFirstByEmailOrderByCreationTimestampDesc(toEmail);
-        return latestSubscription != null && latestSubscription.isUnsubscribed();
+    /**
+     * Sends emails together in one batch. Unsubscribed recipients should already have been removed with
+     * {@link #isUnsubscribed(String)}. Like {@link #sendEmailMessage}, the sent emails are saved by the caller.
+     */
+    public List<EmailMessage> sendEmailMessages(List<EmailMessage> emailMessages) throws MessageSendException {
+        return mailgunGateway.sendMessages(emailMessages);
+    }
+
+    public boolean isUnsubscribed(String toEmail) {
+        if (subscriptionCacheEnabled && unsubscribedCache.isLoaded()) {
+            return unsubscribedCache.isUnsubscribed(toEmail);
+        }
+        return emailSubscriptionStateRepository.findById(toEmail)
+                .map(EmailSubscriptionState::isUnsubscribed)
+                .orElse(false);
     }
 
     public void unsubscribe(String unsubscribedEmail) {
         log.info("Unsubscribing");
-        emailSubscriptionRepository.save(EmailSubscription.builder()
-                .email(unsubscribedEmail)
-                .sourceInternal(true)
-                .unsubscribed(true)
-                .build());
+        transactionTemplate.executeWithoutResult(status -> {
+            emailSubscriptionRepository.save(EmailSubscription.builder()
+                    .email(unsubscribedEmail)
+                    .sourceInternal(true)
+                    .unsubscribed(true)
+                    .build());
+            emailSubscriptionStateRepository.upsert(unsubscribedEmail, true);
+        });
+        unsubscribedCache.update(unsubscribedEmail, true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${subscription-cache.refresh-interval-in-seconds}",
+            initialDelayString = "${subscription-cache.refresh-interval-in-seconds}", timeUnit = TimeUnit.SECONDS)
+    public void refreshSubscriptionCache() {
+        if (!subscriptionCacheEnabled) {
+            return;
+        }
+        OffsetDateTime refreshedAt = OffsetDateTime.now();
+        if (!unsubscribedCache.isLoaded()) {
+            log.info("Loading unsubscribed emails");
+            unsubscribedCache.load(emailSubscriptionStateRepository.findAllByUnsubscribedTrue().stream()
+                    .map(EmailSubscriptionState::getEmail)
+                    .toList(), refreshedAt);
+            return;
+        }
+        emailSubscriptionStateRepository.findAllByUpdateTimestampAfterOrderByUpdateTimestampAsc(unsubscribedCache.getRefreshStart())
+                .forEach(subscriptionState -> unsubscribedCache.update(subscriptionState.getEmail(), subscriptionState.isUnsubscribed()));
+        unsubscribedCache.setRefreshedAt(refreshedAt);
     }
 
     @Transactional
-    public void updateStatus(String providerMessageId, MessageStatus newEmailStatus, String rawEmailStatus, Map<String, String> providerError) {
-        EmailMessage emailMessage = emailMessageRepository.findFirstByProviderMessageId(providerMessageId);
-        if (emailMessage == null) {
+    public void updateStatus(String providerMessageId, String toEmail, MessageStatus newEmailStatus, String rawEmailStatus,
+            Map<String, String> providerError) {
+        if (!applyStatus(providerMessageId, toEmail, newEmailStatus, rawEmailStatus, providerError)) {
             log.error("Cannot find message with providerId: {}", providerMessageId);
             throw new JobRunrException("Cannot find message with providerId");
         }
+    }
+
+    /**
+     * Updates the status of an email, unless it already has a later status.
+     *
+     * @return False if no email linked to a message has the provider message id yet
+     */
+    @Transactional
+    public boolean applyStatus(String providerMessageId, String toEmail, MessageStatus newEmailStatus, String rawEmailStatus,
+            Map<String, String> providerError) {
+        // Emails sent in a batch share a provider message id, so the recipient identifies which one was updated
+        EmailMessage emailMessage = toEmail == null ?
+                emailMessageRepository.findFirstByProviderMessageId(providerMessageId) :
+                emailMessageRepository.findFirstByProviderMessageIdAndToEmailIgnoreCase(providerMessageId, toEmail);
+        if (emailMessage == null || emailMessage.getMessage() == null) {
+            return false;
+        }
         log.info("Updating status for {}", providerMessageId);
         MessageStatus currentEmailStatus = emailMessage.getMessage().getEmailStatus();
         if (newEmailStatus.isAfter(currentEmailStatus)) {
@@ -76,6 +152,19 @@ public class EmailService {
         } else {
             log.info("Ignoring earlier status {}, current status: {}", newEmailStatus, currentEmailStatus);
         }
+        return true;
+    }
 
+    /**
+     * Applies staged status events in bulk, with the same rules as {@link #applyStatus}.
+     *
+     * @return The ids of events with no email linked to a message for their provider message id yet
+     */
+    @Transactional
+    public List<Long> applyStatusEvents(Collection<Long> statusEventIds) {
+        List<Long> unmatchedStatusEventIds = emailMessageRepository.findStatusEventIdsWithoutEmailMessage(statusEventIds);
+        int updatedCount = emailMessageRepository.applyStatusEvents(statusEventIds);
+        log.info("Updated status of {} emails from {} status events", updatedCount, statusEventIds.size());
+        return unmatchedStatusEventIds;
     }
 }
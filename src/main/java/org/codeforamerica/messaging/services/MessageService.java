@@ -1,28 +1,38 @@
 package org.codeforamerica.messaging.services;
 
-import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVRecord;
 import org.codeforamerica.messaging.exceptions.*;
+import org.codeforamerica.messaging.jobs.EnqueueMessagesJobRequest;
 import org.codeforamerica.messaging.jobs.SendMessageBatchJobRequest;
 import org.codeforamerica.messaging.jobs.SendMessageJobRequest;
+import org.codeforamerica.messaging.jobs.SendMessagesJobRequest;
 import org.codeforamerica.messaging.models.*;
+import org.codeforamerica.messaging.providers.mailgun.MailgunGateway;
+import org.codeforamerica.messaging.repositories.EmailMessageRepository;
 import org.codeforamerica.messaging.repositories.MessageBatchRepository;
 import org.codeforamerica.messaging.repositories.MessageRepository;
+import org.codeforamerica.messaging.repositories.SmsMessageRepository;
 import org.codeforamerica.messaging.utils.CSVReader;
 import org.jobrunr.jobs.JobId;
 import org.jobrunr.scheduling.JobRequestScheduler;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.context.MessageSourceAware;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 import static java.util.function.Predicate.not;
@@ -38,25 +48,50 @@ public class MessageService implements MessageSourceAware {
     private final EmailService emailService;
     private final MessageRepository messageRepository;
     private final MessageBatchRepository messageBatchRepository;
+    private final SmsMessageRepository smsMessageRepository;
+    private final EmailMessageRepository emailMessageRepository;
     private final TemplateService templateService;
     private final JobRequestScheduler jobRequestScheduler;
+    private final TransactionTemplate transactionTemplate;
+    private final DuplicateMessageCache duplicateMessageCache;
+    private final Executor messageDispatchExecutor;
     private MessageSource messageSource;
 
     @Value("${message.duplicate-suppression-window-duration-in-hours}")
     private long duplicateMessageSuppressionHours;
+    @Value("${message.batch-chunk-size}")
+    private int batchChunkSize;
+    @Value("${message.email-batch-sending.enabled}")
+    private boolean emailBatchSendingEnabled;
+    @Value("${message.retry.max-retries}")
+    private int maxRetries;
+    @Value("${message.retry.initial-delay-in-seconds}")
+    private long retryInitialDelaySeconds;
+    @Value("${message.retry.max-delay-in-seconds}")
+    private long retryMaxDelaySeconds;
 
     public MessageService(SmsService smsService,
             EmailService emailService,
             MessageRepository messageRepository,
             MessageBatchRepository messageBatchRepository,
+            SmsMessageRepository smsMessageRepository,
+            EmailMessageRepository emailMessageRepository,
             TemplateService templateService,
-            JobRequestScheduler jobRequestScheduler) {
+            JobRequestScheduler jobRequestScheduler,
+            TransactionTemplate transactionTemplate,
+            DuplicateMessageCache duplicateMessageCache,
+            @Qualifier("messageDispatchExecutor") Executor messageDispatchExecutor) {
         this.smsService = smsService;
         this.emailService = emailService;
         this.messageRepository = messageRepository;
         this.messageBatchRepository = messageBatchRepository;
+        this.smsMessageRepository = smsMessageRepository;
+        this.emailMessageRepository = emailMessageRepository;
         this.templateService = templateService;
         this.jobRequestScheduler = jobRequestScheduler;
+        this.transactionTemplate = transactionTemplate;
+        this.duplicateMessageCache = duplicateMessageCache;
+        this.messageDispatchExecutor = messageDispatchExecutor;
     }
 
     @Override
@@ -66,11 +101,45 @@ public class MessageService implements MessageSourceAware {
 
     public Message scheduleMessage(MessageRequest messageRequest, MessageBatch messageBatch) {
         Message message = saveMessage(messageRequest, messageBatch);
+        scheduleSendMessageJob(message, messageRequest.getSendAt());
+        return message;
+    }
 
-        OffsetDateTime sendAt = messageRequest.getSendAt() == null ? OffsetDateTime.now() : messageRequest.getSendAt();
+    private void scheduleSendMessageJob(Message message, OffsetDateTime requestedSendAt) {
+        OffsetDateTime sendAt = requestedSendAt == null ? OffsetDateTime.now() : requestedSendAt;
         JobId id = jobRequestScheduler.schedule(sendAt, new SendMessageJobRequest(message.getId()));
         log.info("Scheduled SendMessage job {} to send at {}", id, sendAt);
-        return message;
+    }
+
+    /**
+     * Enqueues SendMessage jobs for many messages with a single call to job storage. Messages that should be sent
+     * later are enqueued by one EnqueueMessages job scheduled for that time, rather than a job per message.
+     */
+    private void scheduleSendMessageJobs(List<Long> messageIds, OffsetDateTime sendAt) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        if (sendAt == null || !sendAt.isAfter(OffsetDateTime.now())) {
+            enqueueSendMessageJobs(messageIds);
+        } else {
+            JobId id = jobRequestScheduler.schedule(sendAt, new EnqueueMessagesJobRequest(messageIds));
+            log.info("Scheduled EnqueueMessages job {} for {} messages to send at {}", id, messageIds.size(), sendAt);
+        }
+    }
+
+    public void enqueueSendMessageJobs(List<Long> messageIds) {
+        if (emailBatchSendingEnabled) {
+            List<SendMessagesJobRequest> jobRequests = new ArrayList<>();
+            for (int start = 0; start < messageIds.size(); start += MailgunGateway.MAX_BATCH_SIZE) {
+                jobRequests.add(new SendMessagesJobRequest(List.copyOf(
+                        messageIds.subList(start, Math.min(start + MailgunGateway.MAX_BATCH_SIZE, messageIds.size())))));
+            }
+            jobRequestScheduler.enqueue(jobRequests.stream());
+            log.info("Enqueued {} SendMessages jobs for {} messages", jobRequests.size(), messageIds.size());
+            return;
+        }
+        jobRequestScheduler.enqueue(messageIds.stream().map(SendMessageJobRequest::new));
+        log.info("Enqueued {} SendMessage jobs", messageIds.size());
     }
 
     public Message scheduleMessage(MessageRequest messageRequest) {
@@ -111,77 +180,393 @@ public class MessageService implements MessageSourceAware {
     }
 
     public Message saveMessage(MessageRequest messageRequest, MessageBatch messageBatch) {
-        TemplateVariant templateVariant = getTemplateVariant(messageRequest);
+        return messageRepository.save(buildMessage(messageRequest, messageBatch));
+    }
+
+    private Message buildMessage(MessageRequest messageRequest, MessageBatch messageBatch) {
+        TemplateVariant templateVariant = messageBatch == null ?
+                getTemplateVariant(messageRequest) : getTemplateVariant(messageBatch.getTemplate(), messageRequest);
         checkForMissingPlaceholders(templateVariant.getAllPlaceholders(), messageRequest.getTemplateParams());
-        Message message = Message.builder()
+        return Message.builder()
                 .templateVariant(templateVariant)
                 .templateParams(messageRequest.getTemplateParams())
                 .toPhone(messageRequest.getToPhone())
                 .toEmail(messageRequest.getToEmail())
                 .messageBatch(messageBatch)
                 .build();
-        return messageRepository.save(message);
     }
 
-    @Transactional
+    /**
+     * Sends a message's SMS and email at the same time, each on a dispatch thread, and saves both statuses once they
+     * have been sent. No transaction is held open while waiting on Twilio or Mailgun. If a provider is over its rate
+     * limit, or fails in a way that may be temporary, that channel is left unsent and the message is rescheduled.
+     *
+     * @param messageId The message to send
+     */
     public void sendMessage(Long messageId) {
         log.info("Sending message #{}", messageId);
         Message message = messageRepository.findById(messageId).orElseThrow();
-        TemplateVariant templateVariant = message.getTemplateVariant();
-        Map<String, String> templateParams = message.getTemplateParams();
-        if (message.needToSendSms()) {
-            if (duplicateSentRecently(message, Message::getToPhone)) {
-                message.setSmsStatus(MessageStatus.duplicate);
-                message.setSmsErrorMessage("Duplicate message");
-                messageRepository.save(message);
+        if (message.getSmsDuplicateKey() == null || message.getEmailDuplicateKey() == null) {
+            message.updateDuplicateKeys();
+        }
+        CompletableFuture<Duration> smsDispatch = message.needToSendSms() ?
+                CompletableFuture.supplyAsync(() -> sendSms(message), messageDispatchExecutor) :
+                CompletableFuture.completedFuture(null);
+        CompletableFuture<Duration> emailDispatch = message.needToSendEmail() ?
+                CompletableFuture.supplyAsync(() -> sendEmail(message), messageDispatchExecutor) :
+                CompletableFuture.completedFuture(null);
+        Duration retryAfter = longest(smsDispatch.join(), emailDispatch.join());
+        if (message.getSmsStatus() != null || message.getEmailStatus() != null) {
+            saveSentMessages(List.of(message));
+        }
+        if (retryAfter != null) {
+            scheduleSendMessageJob(message, OffsetDateTime.now().plus(retryAfter));
+        }
+        if (message.getSmsStatus() == MessageStatus.submission_succeeded) {
+            duplicateMessageCache.put(message.getSmsDuplicateKey());
+        }
+        if (message.getEmailStatus() == MessageStatus.submission_succeeded) {
+            duplicateMessageCache.put(message.getEmailDuplicateKey());
+        }
+    }
+
+    /**
+     * Sends a message's email and sets its email status. The message itself is saved by the caller.
+     *
+     * @return How long to wait before trying again if Mailgun is over its rate limit or the email will be retried,
+     * otherwise null
+     */
+    private Duration sendEmail(Message message) {
+        if (emailDuplicateSentRecently(message)) {
+            markEmailDuplicate(message);
+            return null;
+        }
+        try {
+            EmailMessage sentEmailMessage = this.emailService.sendEmailMessage(message.getToEmail(),
+                    buildEmailBody(message), buildEmailSubject(message));
+            log.info("Sending email for message #{}, providerMessageId: {}", message.getId(),
+                    sentEmailMessage.getProviderMessageId());
+            markEmailSent(message, sentEmailMessage);
+        } catch (UnsubscribedException e) {
+            markEmailUnsubscribed(message, e);
+        } catch (ProviderUnavailableException e) {
+            return deferDelay(e.getRetryAfter());
+        } catch (Exception e) {
+            return markEmailFailed(message, e);
+        }
+        return null;
+    }
+
+    private static Duration longest(Duration first, Duration second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        return first.compareTo(second) >= 0 ? first : second;
+    }
+
+    /**
+     * Sends messages from a batch, sending their emails with as few Mailgun API calls as possible. Each email is
+     * rendered separately and passed to Mailgun as recipient variables, so emails in a call do not need to share a
+     * template variant. SMS are still sent one at a time.
+     * <p>
+     * Once a provider is over its rate limit or unavailable, nothing more is sent to it in this call, and messages
+     * left unsent are rescheduled together. A message that failed in a way that may be temporary is rescheduled on
+     * its own backoff, without holding back the rest.
+     *
+     * @param messageIds Messages to send, at most {@link MailgunGateway#MAX_BATCH_SIZE} per call is best
+     */
+    public void sendMessages(List<Long> messageIds) {
+        log.info("Sending {} messages", messageIds.size());
+        Iterable<Message> messages = messageRepository.findAllById(messageIds);
+        List<EmailMessage> pendingEmailMessages = new ArrayList<>();
+        Map<EmailMessage, Message> messagesByEmailMessage = new IdentityHashMap<>();
+        // Statuses are only saved once everything has been sent, so duplicates within this call are caught here
+        Set<String> sentDuplicateKeys = new HashSet<>();
+        boolean suppressDuplicates = duplicateMessageSuppressionHours > 0;
+        Map<Message, Duration> retryAfterByMessage = new IdentityHashMap<>();
+        Duration smsDeferredFor = null;
+        Duration emailDeferredFor = null;
+        for (Message message : messages) {
+            if (message.getSmsDuplicateKey() == null || message.getEmailDuplicateKey() == null) {
+                message.updateDuplicateKeys();
+            }
+            if (message.needToSendSms() && smsDeferredFor == null) {
+                if (suppressDuplicates && sentDuplicateKeys.contains(message.getSmsDuplicateKey())) {
+                    markSmsDuplicate(message);
+                } else {
+                    try {
+                        retryAfterByMessage.put(message, trySendSms(message));
+                    } catch (ProviderUnavailableException e) {
+                        smsDeferredFor = deferDelay(e.getRetryAfter());
+                    }
+                    if (message.getSmsStatus() == MessageStatus.submission_succeeded) {
+                        sentDuplicateKeys.add(message.getSmsDuplicateKey());
+                    }
+                }
+            }
+            if (!message.needToSendEmail()) {
+                continue;
+            }
+            if (suppressDuplicates && sentDuplicateKeys.contains(message.getEmailDuplicateKey())
+                    || emailDuplicateSentRecently(message)) {
+                markEmailDuplicate(message);
+            } else if (emailService.isUnsubscribed(message.getToEmail())) {
+                markEmailUnsubscribed(message, new UnsubscribedException());
             } else {
                 try {
-                    String smsBody = templateVariant.build(TemplateVariant::getSmsBody, templateParams);
-                    SmsMessage sentSmsMessage = this.smsService.sendSmsMessage(message.getToPhone(), smsBody);
-                    log.info("Sending sms for message #{}, providerMessageId: {}", messageId,
-                        sentSmsMessage.getProviderMessageId());
-                    message.setSmsMessage(sentSmsMessage);
-                    message.setSmsStatus(MessageStatus.submission_succeeded);
-                    messageRepository.save(message);
-                } catch (UnsubscribedException e) {
-                    message.setSmsStatus(MessageStatus.unsubscribed);
-                    message.setSmsErrorMessage(e.getMessage());
-                    messageRepository.save(message);
+                    EmailMessage emailMessage = EmailMessage.builder()
+                            .toEmail(message.getToEmail())
+                            .subject(buildEmailSubject(message))
+                            .body(buildEmailBody(message))
+                            .build();
+                    pendingEmailMessages.add(emailMessage);
+                    messagesByEmailMessage.put(emailMessage, message);
+                    sentDuplicateKeys.add(message.getEmailDuplicateKey());
                 } catch (Exception e) {
-                    log.error("Error sending SMS", e);
-                    message.setSmsStatus(MessageStatus.submission_failed);
-                    message.setSmsErrorMessage(e.getMessage());
-                    messageRepository.save(message);
+                    retryAfterByMessage.put(message,
+                            longest(retryAfterByMessage.get(message), markEmailFailed(message, e)));
                 }
             }
         }
-        if (message.needToSendEmail()) {
-            if (duplicateSentRecently(message, Message::getToEmail)) {
-                message.setEmailStatus(MessageStatus.duplicate);
-                message.setEmailErrorMessage("Duplicate message");
-                messageRepository.save(message);
-            } else {
-                try {
-                    String subject = templateVariant.build(TemplateVariant::getSubject, templateParams);
-                    String emailBody = templateVariant.build(TemplateVariant::getEmailBody, templateParams);
-                    emailBody = addUnsubscribeFooter(message, emailBody);
-                    EmailMessage sentEmailMessage = this.emailService.sendEmailMessage(message.getToEmail(), emailBody, subject);
-                    log.info("Sending email for message #{}, providerMessageId: {}", messageId, sentEmailMessage.getProviderMessageId());
-                    message.setEmailMessage(sentEmailMessage);
-                    message.setEmailStatus(MessageStatus.submission_succeeded);
-                    messageRepository.save(message);
-                } catch (UnsubscribedException e) {
-                    message.setEmailStatus(MessageStatus.unsubscribed);
-                    message.setEmailErrorMessage(e.getMessage());
-                    messageRepository.save(message);
-                } catch (Exception e) {
-                    log.error("Error sending email", e);
-                    message.setEmailStatus(MessageStatus.submission_failed);
-                    message.setEmailErrorMessage(e.getMessage());
-                    messageRepository.save(message);
+        for (List<EmailMessage> emailBatch : partitionByRecipient(pendingEmailMessages)) {
+            if (emailDeferredFor != null) {
+                break;
+            }
+            try {
+                List<EmailMessage> sentEmailMessages = emailService.sendEmailMessages(emailBatch);
+                log.info("Sending {} emails, providerMessageId: {}", sentEmailMessages.size(),
+                        sentEmailMessages.get(0).getProviderMessageId());
+                sentEmailMessages.forEach(sentEmailMessage ->
+                        markEmailSent(messagesByEmailMessage.get(sentEmailMessage), sentEmailMessage));
+            } catch (ProviderUnavailableException e) {
+                emailDeferredFor = deferDelay(e.getRetryAfter());
+            } catch (Exception e) {
+                for (EmailMessage emailMessage : emailBatch) {
+                    Message message = messagesByEmailMessage.get(emailMessage);
+                    retryAfterByMessage.put(message,
+                            longest(retryAfterByMessage.get(message), markEmailFailed(message, e)));
                 }
             }
         }
+        saveSentMessages(messages);
+        rescheduleUnsentMessages(messages, retryAfterByMessage, smsDeferredFor, emailDeferredFor);
+        for (Message message : messages) {
+            if (message.getSmsStatus() == MessageStatus.submission_succeeded) {
+                duplicateMessageCache.put(message.getSmsDuplicateKey());
+            }
+            if (message.getEmailStatus() == MessageStatus.submission_succeeded) {
+                duplicateMessageCache.put(message.getEmailDuplicateKey());
+            }
+        }
+    }
+
+    /**
+     * Saves messages along with the SMS and emails sent for them, in one transaction. Status callbacks look up the
+     * SMS or email by provider message id and then update its message, so neither may be visible without the other.
+     */
+    private void saveSentMessages(Iterable<Message> messages) {
+        List<SmsMessage> sentSmsMessages = new ArrayList<>();
+        List<EmailMessage> sentEmailMessages = new ArrayList<>();
+        for (Message message : messages) {
+            if (message.getSmsMessage() != null && message.getSmsMessage().getId() == null) {
+                sentSmsMessages.add(message.getSmsMessage());
+            }
+            if (message.getEmailMessage() != null && message.getEmailMessage().getId() == null) {
+                sentEmailMessages.add(message.getEmailMessage());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            smsMessageRepository.saveAll(sentSmsMessages);
+            emailMessageRepository.saveAll(sentEmailMessages);
+            messageRepository.saveAll(messages);
+        });
+    }
+
+    /**
+     * Reschedules messages that still need an SMS or email sent. Messages held back because a provider was
+     * unavailable share one job, while messages being retried after their own failure each wait for their own
+     * backoff.
+     *
+     * @param retryAfterByMessage How long each message that failed should wait before it is retried
+     * @param smsDeferredFor      How long to wait before sending SMS again, or null if Twilio was available
+     * @param emailDeferredFor    How long to wait before sending emails again, or null if Mailgun was available
+     */
+    private void rescheduleUnsentMessages(Iterable<Message> messages, Map<Message, Duration> retryAfterByMessage,
+            Duration smsDeferredFor, Duration emailDeferredFor) {
+        Map<Duration, List<Long>> messageIdsByRetryAfter = new TreeMap<>();
+        for (Message message : messages) {
+            Duration retryAfter = retryAfterByMessage.get(message);
+            if (message.needToSendSms()) {
+                retryAfter = longest(retryAfter, smsDeferredFor);
+            }
+            if (message.needToSendEmail()) {
+                retryAfter = longest(retryAfter, emailDeferredFor);
+            }
+            if (retryAfter != null && (message.needToSendSms() || message.needToSendEmail())) {
+                messageIdsByRetryAfter.computeIfAbsent(retryAfter, key -> new ArrayList<>()).add(message.getId());
+            }
+        }
+        messageIdsByRetryAfter.forEach((retryAfter, unsentMessageIds) -> {
+            OffsetDateTime sendAt = OffsetDateTime.now().plus(retryAfter);
+            JobId id = jobRequestScheduler.schedule(sendAt, new SendMessagesJobRequest(unsentMessageIds));
+            log.info("Scheduled SendMessages job {} for {} unsent messages to send at {}", id,
+                    unsentMessageIds.size(), sendAt);
+        });
+    }
+
+    /**
+     * Splits emails into batches that fit in one Mailgun API call. Mailgun keys recipient variables by address, so
+     * emails to the same address are put in different batches.
+     */
+    private static List<List<EmailMessage>> partitionByRecipient(List<EmailMessage> emailMessages) {
+        List<List<EmailMessage>> batches = new ArrayList<>();
+        List<Set<String>> batchRecipients = new ArrayList<>();
+        for (EmailMessage emailMessage : emailMessages) {
+            String recipient = emailMessage.getToEmail().toLowerCase(Locale.ROOT);
+            int batchIndex = 0;
+            while (batchIndex < batches.size() && (batches.get(batchIndex).size() == MailgunGateway.MAX_BATCH_SIZE
+                    || batchRecipients.get(batchIndex).contains(recipient))) {
+                batchIndex++;
+            }
+            if (batchIndex == batches.size()) {
+                batches.add(new ArrayList<>());
+                batchRecipients.add(new HashSet<>());
+            }
+            batches.get(batchIndex).add(emailMessage);
+            batchRecipients.get(batchIndex).add(recipient);
+        }
+        return batches;
+    }
+
+    /**
+     * Sends a message's SMS and sets its SMS status. The message itself is saved by the caller.
+     *
+     * @return How long to wait before trying again if Twilio is over its rate limit or the SMS will be retried,
+     * otherwise null
+     */
+    private Duration sendSms(Message message) {
+        try {
+            return trySendSms(message);
+        } catch (ProviderUnavailableException e) {
+            return deferDelay(e.getRetryAfter());
+        }
+    }
+
+    /**
+     * @return How long to wait before trying again if the SMS will be retried, otherwise null
+     * @throws ProviderUnavailableException If nothing was sent because Twilio can't take messages right now
+     */
+    private Duration trySendSms(Message message) throws ProviderUnavailableException {
+        if (smsDuplicateSentRecently(message)) {
+            markSmsDuplicate(message);
+            return null;
+        }
+        try {
+            String smsBody = message.getTemplateVariant().build(TemplateVariant::getSmsBody, message.getTemplateParams());
+            SmsMessage sentSmsMessage = this.smsService.sendSmsMessage(message.getToPhone(), smsBody);
+            log.info("Sending sms for message #{}, providerMessageId: {}", message.getId(),
+                sentSmsMessage.getProviderMessageId());
+            message.setSmsMessage(sentSmsMessage);
+            message.setSmsStatus(MessageStatus.submission_succeeded);
+        } catch (UnsubscribedException e) {
+            message.setSmsStatus(MessageStatus.unsubscribed);
+            message.setSmsErrorMessage(e.getMessage());
+        } catch (ProviderUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            if (isRetryable(e) && message.getSmsRetryCount() < maxRetries) {
+                message.setSmsRetryCount(message.getSmsRetryCount() + 1);
+                message.setSmsStatus(MessageStatus.retrying);
+                message.setSmsErrorMessage(e.getMessage());
+                log.warn("Error sending SMS for message #{}, retry {} of {}", message.getId(),
+                        message.getSmsRetryCount(), maxRetries, e);
+                return retryDelay(message.getSmsRetryCount());
+            }
+            log.error("Error sending SMS", e);
+            message.setSmsStatus(MessageStatus.submission_failed);
+            message.setSmsErrorMessage(e.getMessage());
+        }
+        return null;
+    }
+
+    private void markSmsDuplicate(Message message) {
+        message.setSmsStatus(MessageStatus.duplicate);
+        message.setSmsErrorMessage("Duplicate message");
+    }
+
+    private String buildEmailSubject(Message message) {
+        return message.getTemplateVariant().build(TemplateVariant::getSubject, message.getTemplateParams());
+    }
+
+    private String buildEmailBody(Message message) {
+        String emailBody = message.getTemplateVariant().build(TemplateVariant::getEmailBody, message.getTemplateParams());
+        return addUnsubscribeFooter(message, emailBody);
+    }
+
+    private void markEmailSent(Message message, EmailMessage sentEmailMessage) {
+        message.setEmailMessage(sentEmailMessage);
+        message.setEmailStatus(MessageStatus.submission_succeeded);
+    }
+
+    private void markEmailDuplicate(Message message) {
+        message.setEmailStatus(MessageStatus.duplicate);
+        message.setEmailErrorMessage("Duplicate message");
+    }
+
+    private void markEmailUnsubscribed(Message message, UnsubscribedException e) {
+        message.setEmailStatus(MessageStatus.unsubscribed);
+        message.setEmailErrorMessage(e.getMessage());
+    }
+
+    /**
+     * @return How long to wait before sending again if the email will be retried, otherwise null
+     */
+    private Duration markEmailFailed(Message message, Exception e) {
+        if (isRetryable(e) && message.getEmailRetryCount() < maxRetries) {
+            message.setEmailRetryCount(message.getEmailRetryCount() + 1);
+            message.setEmailStatus(MessageStatus.retrying);
+            message.setEmailErrorMessage(e.getMessage());
+            log.warn("Error sending email for message #{}, retry {} of {}", message.getId(),
+                    message.getEmailRetryCount(), maxRetries, e);
+            return retryDelay(message.getEmailRetryCount());
+        }
+        log.error("Error sending email", e);
+        message.setEmailStatus(MessageStatus.submission_failed);
+        message.setEmailErrorMessage(e.getMessage());
+        return null;
+    }
+
+    private static boolean isRetryable(Exception e) {
+        return e instanceof MessageSendException messageSendException && messageSendException.isRetryable();
+    }
+
+    /**
+     * Exponential backoff with jitter, so messages that failed together during an outage are not all retried at the
+     * same moment.
+     *
+     * @param retryCount The retry about to be scheduled, starting at 1
+     */
+    private Duration retryDelay(int retryCount) {
+        long delaySeconds = retryInitialDelaySeconds;
+        for (int retry = 1; retry < retryCount && delaySeconds < retryMaxDelaySeconds; retry++) {
+            delaySeconds *= 2;
+        }
+        Duration halfDelay = Duration.ofSeconds(Math.min(delaySeconds, retryMaxDelaySeconds)).dividedBy(2);
+        return halfDelay.plus(jitter(halfDelay));
+    }
+
+    /**
+     * How long to wait before sending again when a provider is unavailable. Jitter is added so messages deferred at
+     * the same moment are not all sent again at the same moment, which would only have them deferred again.
+     *
+     * @param retryAfter The earliest the provider can take the message
+     */
+    private static Duration deferDelay(Duration retryAfter) {
+        return retryAfter.plus(jitter(retryAfter));
+    }
+
+    private static Duration jitter(Duration maxJitter) {
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(maxJitter.toMillis() + 1));
     }
 
     private String addUnsubscribeFooter(Message message, String emailBody) {
@@ -201,7 +586,11 @@ public class MessageService implements MessageSourceAware {
     }
 
     public TemplateVariant getTemplateVariant(MessageRequest messageRequest) {
-        Template template = templateService.getTemplateByName(messageRequest.getTemplateName());
+        return templateService.getTemplateVariant(messageRequest.getTemplateName(), messageRequest.getLanguage(),
+                messageRequest.getTreatment());
+    }
+
+    private TemplateVariant getTemplateVariant(Template template, MessageRequest messageRequest) {
         String language = messageRequest.getLanguage();
         String treatment = messageRequest.getTreatment();
         return template.getTemplateVariants().stream()
@@ -213,76 +602,143 @@ public class MessageService implements MessageSourceAware {
                                 .formatted(messageRequest.getTemplateName(), language, treatment)));
     }
 
-    public void scheduleMessagesInBatch(Long messageBatchId)  {
+    /**
+     * Schedules the next chunk of recipients in a batch. The position of the next unscheduled recipient is saved
+     * along with the chunk's messages, so a job that is interrupted resumes from the last completed chunk. Another
+     * job is enqueued for the following chunk until every recipient has been scheduled.
+     * <p>
+     * Send jobs for the chunk are only enqueued once its messages have been committed, so a worker never picks up a
+     * job for a message it cannot see yet, or one that was rolled back. The chunk's message ids are saved with it and
+     * cleared once their jobs are enqueued. If the job stops in between, the retry enqueues them before scheduling
+     * the next chunk. Sending checks each message's status, so a message enqueued twice is only sent once.
+     *
+     * @param messageBatchId The batch to schedule messages for
+     */
+    public void scheduleMessagesInBatch(Long messageBatchId) {
+        messageBatchRepository.findById(messageBatchId)
+                .filter(messageBatch -> messageBatch.getMessageIdsToEnqueue() != null)
+                .ifPresent(messageBatch -> {
+                    log.warn("Enqueueing send jobs left over from the last chunk of batch #{}", messageBatchId);
+                    enqueueChunk(messageBatchId, messageBatch.getMessageIdsToEnqueue(), messageBatch.getSendAt());
+                });
+        ScheduledChunk chunk = transactionTemplate.execute(status -> scheduleNextMessagesInBatch(messageBatchId));
+        if (chunk == null) {
+            return;
+        }
+        enqueueChunk(messageBatchId, chunk.messageIds(), chunk.sendAt());
+        if (chunk.hasMoreRecipients()) {
+            JobId id = jobRequestScheduler.enqueue(new SendMessageBatchJobRequest(messageBatchId));
+            log.info("Enqueued SendMessageBatch job {} for next chunk of batch #{}", id, messageBatchId);
+        }
+    }
+
+    private void enqueueChunk(Long messageBatchId, List<Long> messageIds, OffsetDateTime sendAt) {
+        scheduleSendMessageJobs(messageIds, sendAt);
+        if (!messageIds.isEmpty()) {
+            messageBatchRepository.clearMessageIdsToEnqueue(messageBatchId);
+        }
+    }
+
+    private record ScheduledChunk(List<Long> messageIds, OffsetDateTime sendAt, boolean hasMoreRecipients) {
+    }
+
+    /**
+     * @return The chunk's saved messages, or null if there was nothing to schedule
+     */
+    private ScheduledChunk scheduleNextMessagesInBatch(Long messageBatchId) {
         MessageBatch messageBatch = messageBatchRepository.findById(messageBatchId).orElseThrow(() -> {
             log.error("Could not find batch #{} after being scheduled", messageBatchId);
             return null;
         });
+        if (messageBatch.isRecipientsScheduled()) {
+            log.info("All messages in batch #{} have already been scheduled", messageBatchId);
+            return null;
+        }
         CSVReader csvReader;
         try {
-            csvReader = new CSVReader(new InputStreamReader(new ByteArrayInputStream(messageBatch.getRecipients())));
+            csvReader = openRecipients(messageBatch);
         } catch (IOException e) {
             log.error("Could not read recipients file in batch #{} after being scheduled", messageBatchId, e);
-            return;
+            return null;
         }
 
-        log.info("Scheduling messages in batch #{}", messageBatchId);
-        List<Map<String, String>> recipientErrorRows = new LinkedList<>();
-        csvReader.stream().forEach(row -> {
-            MessageRequest messageRequest = MessageRequest.builder()
-                    .toPhone(PhoneNumber.valueOf(row.get(PHONE_HEADER)))
-                    .toEmail(row.get(EMAIL_HEADER))
-                    .templateName(messageBatch.getTemplate().getName())
-                    .templateParams(row)
-                    .sendAt(messageBatch.getSendAt())
-                    .build();
-
+        log.info("Scheduling messages in batch #{} from offset {}", messageBatchId, messageBatch.getRecipientsOffset());
+        List<Map<String, String>> recipientErrorRows = messageBatch.getRecipientErrorRows() == null ?
+                new ArrayList<>() : new ArrayList<>(messageBatch.getRecipientErrorRows());
+        List<Message> messages = new ArrayList<>();
+        Iterator<CSVRecord> records = csvReader.iterator();
+        boolean hasMoreRecipients = false;
+        int scheduledCount = 0;
+        while (records.hasNext()) {
+            CSVRecord record = records.next();
+            if (scheduledCount == batchChunkSize) {
+                messageBatch.setRecipientsOffset(record.getCharacterPosition());
+                hasMoreRecipients = true;
+                break;
+            }
+            Map<String, String> row = record.toMap();
             try {
-                this.scheduleMessage(messageRequest, messageBatch);
+                MessageRequest messageRequest = MessageRequest.builder()
+                        .toPhone(PhoneNumber.valueOf(row.get(PHONE_HEADER)))
+                        .toEmail(row.get(EMAIL_HEADER))
+                        .templateName(messageBatch.getTemplate().getName())
+                        .templateParams(row)
+                        .sendAt(messageBatch.getSendAt())
+                        .build();
+                messages.add(buildMessage(messageRequest, messageBatch));
             } catch (Exception e) {
                 row.put(ERROR_HEADER, e.getMessage());
                 recipientErrorRows.add(row);
             }
-        });
+            scheduledCount++;
+        }
+        List<Long> messageIds = new ArrayList<>();
+        messageRepository.saveAll(messages).forEach(message -> messageIds.add(message.getId()));
+        messageBatch.setRecipientsScheduled(!hasMoreRecipients);
         messageBatch.setRecipientErrorRows(recipientErrorRows);
+        messageBatch.setMessageIdsToEnqueue(messageIds.isEmpty() ? null : messageIds);
         messageBatchRepository.save(messageBatch);
+        return new ScheduledChunk(messageIds, messageBatch.getSendAt(), hasMoreRecipients);
+    }
+
+    private CSVReader openRecipients(MessageBatch messageBatch) throws IOException {
+        CSVReader csvReader = new CSVReader(new InputStreamReader(new ByteArrayInputStream(messageBatch.getRecipients())));
+        if (messageBatch.getRecipientsOffset() == 0) {
+            return csvReader;
+        }
+        return new CSVReader(new InputStreamReader(new ByteArrayInputStream(messageBatch.getRecipients())),
+                csvReader.getHeaderNames(), messageBatch.getRecipientsOffset());
     }
 
     /**
-     * Finds either a duplicate SMS or Email, depending on the results from recipientInfoGetter.
+     * Checks for an SMS with the same duplicate key that was sent without error within the suppression window.
      *
      * @param messageToCompare An unsent message to check against before sending
-     * @param recipientInfoGetter Function that returns either an email or a phone number and determines the type of message the duplicate check should look for
-     * @return True if there was an SMS sent to a phone number, or an email sent to an email address, in the last 23 hours
+     * @return True if the same SMS was sent to the same phone number recently
      */
-    private boolean duplicateSentRecently(Message messageToCompare, Function<Message, Object> recipientInfoGetter) {
-        Function<Message, MessageStatus> messageStatusGetter;
-        Object recipientInfo = recipientInfoGetter.apply(messageToCompare);
-        String recipientEmail = null;
-        PhoneNumber recipientPhone = null;
-        if (recipientInfo instanceof PhoneNumber) {
-            recipientPhone = messageToCompare.getToPhone();
-            messageStatusGetter = Message::getSmsStatus;
-        } else {
-            recipientEmail = messageToCompare.getToEmail();
-            messageStatusGetter = Message::getEmailStatus;
-        }
-
-        List<Message> recipientMessagesInWindow = messageRepository.findRecipientMessagesWithSameTemplateUpdatedRecently(
-            recipientEmail, recipientPhone, messageToCompare.getTemplateName(),
-            OffsetDateTime.now().minusHours(duplicateMessageSuppressionHours));
-        return recipientMessagesInWindow.stream()
-            // If there was an error sending a message then it will not be considered a duplicate
-            .filter(sentMessage -> {
-                MessageStatus messageStatus = messageStatusGetter.apply(sentMessage);
-                return messageStatus != null && !messageStatus.hadError();
-            })
-            // Duplicates can be any treatment as long as the language and all other templateParams are the same
-            .anyMatch(sentMessage -> {
-                Map<String, String> sentTemplateParams = sentMessage.getTemplateParams();
-                sentTemplateParams.remove(TREATMENT_HEADER);
-                messageToCompare.getTemplateParams().remove(TREATMENT_HEADER);
-                return sentTemplateParams.equals(messageToCompare.getTemplateParams());
-            });
+    private boolean smsDuplicateSentRecently(Message messageToCompare) {
+        if (duplicateMessageCache.sentRecently(messageToCompare.getSmsDuplicateKey())) {
+            return true;
+        }
+        return messageRepository.existsSentSmsWithDuplicateKeyUpdatedAfter(
+                messageToCompare.getSmsDuplicateKey(), duplicateSuppressionWindowStart());
+    }
+
+    /**
+     * Checks for an email with the same duplicate key that was sent without error within the suppression window.
+     *
+     * @param messageToCompare An unsent message to check against before sending
+     * @return True if the same email was sent to the same email address recently
+     */
+    private boolean emailDuplicateSentRecently(Message messageToCompare) {
+        if (duplicateMessageCache.sentRecently(messageToCompare.getEmailDuplicateKey())) {
+            return true;
+        }
+        return messageRepository.existsSentEmailWithDuplicateKeyUpdatedAfter(
+                messageToCompare.getEmailDuplicateKey(), duplicateSuppressionWindowStart());
+    }
+
+    private OffsetDateTime duplicateSuppressionWindowStart() {
+        return OffsetDateTime.now().minusHours(duplicateMessageSuppressionHours);
     }
 }
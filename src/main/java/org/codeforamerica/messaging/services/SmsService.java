@@ -9,10 +9,20 @@ import org.codeforamerica.messaging.providers.twilio.TwilioGateway;
 import org.codeforamerica.messaging.repositories.MessageRepository;
 import org.codeforamerica.messaging.repositories.SmsMessageRepository;
 import org.codeforamerica.messaging.repositories.SmsSubscriptionRepository;
+import org.codeforamerica.messaging.repositories.SmsSubscriptionStateRepository;
 import org.jobrunr.JobRunrException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
@@ -21,31 +31,43 @@ public class SmsService {
     private final TwilioGateway twilioGateway;
     private final SmsMessageRepository smsMessageRepository;
     private final SmsSubscriptionRepository smsSubscriptionRepository;
+    private final SmsSubscriptionStateRepository smsSubscriptionStateRepository;
     private final MessageRepository messageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean subscriptionCacheEnabled;
+    private final UnsubscribedCache<PhoneNumber> unsubscribedCache = new UnsubscribedCache<>();
 
     public SmsService(TwilioGateway twilioGateway, SmsMessageRepository smsMessageRepository,
-            SmsSubscriptionRepository smsSubscriptionRepository, MessageRepository messageRepository) {
+            SmsSubscriptionRepository smsSubscriptionRepository, SmsSubscriptionStateRepository smsSubscriptionStateRepository,
+            MessageRepository messageRepository, TransactionTemplate transactionTemplate, @Value("${subscription-cache.enabled}") boolean subscriptionCacheEnabled) {
         this.twilioGateway = twilioGateway;
         this.smsMessageRepository = smsMessageRepository;
         this.smsSubscriptionRepository = smsSubscriptionRepository;
+        this.smsSubscriptionStateRepository = smsSubscriptionStateRepository;
         this.messageRepository = messageRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.subscriptionCacheEnabled = subscriptionCacheEnabled;
     }
 
+    /**
+     * Sends an SMS. The sent SMS is not saved here: the caller saves it along with the message it belongs to, so a
+     * status update never finds an SMS that isn't linked to its message yet.
+     */
     public SmsMessage sendSmsMessage(PhoneNumber toPhone, String body) throws MessageSendException {
-        SmsMessage message;
-        if (!unsubscribed(toPhone)) {
-            message = twilioGateway.sendMessage(toPhone.getNumber(), body);
-            message = smsMessageRepository.save(message);
-        } else {
+        if (unsubscribed(toPhone)) {
             log.error("Skipping unsubscribed phone");
             throw new UnsubscribedException();
         }
-        return message;
+        return twilioGateway.sendMessage(toPhone.getNumber(), body);
     }
 
     private boolean unsubscribed(PhoneNumber toPhone) {
-        SmsSubscription latestSubscription = smsSubscriptionRepository.findFirstByPhoneNumberOrderByCreationTimestampDesc(toPhone);
-        return latestSubscription != null && latestSubscription.isUnsubscribed();
+        if (subscriptionCacheEnabled && unsubscribedCache.isLoaded()) {
+            return unsubscribedCache.isUnsubscribed(toPhone);
+        }
+        return smsSubscriptionStateRepository.findById(toPhone.getNumber())
+                .map(SmsSubscriptionState::isUnsubscribed)
+                .orElse(false);
     }
 
     public void subscribe(PhoneNumber phoneNumber) {
@@ -59,21 +81,59 @@ public class SmsService {
     }
 
     private void saveSubscription(PhoneNumber phoneNumber, boolean unsubscribed) {
-        smsSubscriptionRepository.save(SmsSubscription.builder()
-                .phoneNumber(phoneNumber)
-                .sourceInternal(true)
-                .unsubscribed(unsubscribed)
-                .build());
+        transactionTemplate.executeWithoutResult(status -> {
+            smsSubscriptionRepository.save(SmsSubscription.builder()
+                    .phoneNumber(phoneNumber)
+                    .sourceInternal(true)
+                    .unsubscribed(unsubscribed)
+                    .build());
+            smsSubscriptionStateRepository.upsert(phoneNumber.getNumber(), unsubscribed);
+        });
+        unsubscribedCache.update(phoneNumber, unsubscribed);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${subscription-cache.refresh-interval-in-seconds}",
+            initialDelayString = "${subscription-cache.refresh-interval-in-seconds}", timeUnit = TimeUnit.SECONDS)
+    public void refreshSubscriptionCache() {
+        if (!subscriptionCacheEnabled) {
+            return;
+        }
+        OffsetDateTime refreshedAt = OffsetDateTime.now();
+        if (!unsubscribedCache.isLoaded()) {
+            log.info("Loading unsubscribed phone numbers");
+            unsubscribedCache.load(smsSubscriptionStateRepository.findAllByUnsubscribedTrue().stream()
+                    .map(subscriptionState -> PhoneNumber.valueOf(subscriptionState.getPhoneNumber()))
+                    .toList(), refreshedAt);
+            return;
+        }
+        smsSubscriptionStateRepository.findAllByUpdateTimestampAfterOrderByUpdateTimestampAsc(unsubscribedCache.getRefreshStart())
+                .forEach(subscriptionState -> unsubscribedCache.update(PhoneNumber.valueOf(subscriptionState.getPhoneNumber()),
+                        subscriptionState.isUnsubscribed()));
+        unsubscribedCache.setRefreshedAt(refreshedAt);
     }
 
     @Transactional
     public void updateStatus(String providerMessageId, MessageStatus newSmsStatus, String rawStatus, PhoneNumber fromPhone,
             Map<String, String> providerError) {
-        SmsMessage smsMessage = smsMessageRepository.findFirstByProviderMessageId(providerMessageId);
-        if (smsMessage == null) {
+        if (!applyStatus(providerMessageId, newSmsStatus, rawStatus, fromPhone, providerError)) {
             log.error("Cannot find message with providerId: {}", providerMessageId);
             throw new JobRunrException("Cannot find message with providerId");
         }
+    }
+
+    /**
+     * Updates the status of an SMS, unless it already has a later status.
+     *
+     * @return False if no SMS linked to a message has the provider message id yet
+     */
+    @Transactional
+    public boolean applyStatus(String providerMessageId, MessageStatus newSmsStatus, String rawStatus, PhoneNumber fromPhone,
+            Map<String, String> providerError) {
+        SmsMessage smsMessage = smsMessageRepository.findFirstByProviderMessageId(providerMessageId);
+        if (smsMessage == null || smsMessage.getMessage() == null) {
+            return false;
+        }
         log.info("Updating status for {}", providerMessageId);
         MessageStatus currentSmsStatus = smsMessage.getMessage().getSmsStatus();
         if (newSmsStatus.isAfter(currentSmsStatus)) {
@@ -88,5 +148,19 @@ public class SmsService {
         } else {
             log.info("Ignoring earlier status {}, current status: {}", newSmsStatus, currentSmsStatus);
         }
+        return true;
+    }
+
+    /**
+     * Applies staged status events in bulk, with the same rules as {@link #applyStatus}.
+     *
+     * @return The ids of events with no SMS linked to a message for their provider message id yet
+     */
+    @Transactional
+    public List<Long> applyStatusEvents(Collection<Long> statusEventIds) {
+        List<Long> unmatchedStatusEventIds = smsMessageRepository.findStatusEventIdsWithoutSmsMessage(statusEventIds);
+        int updatedCount = smsMessageRepository.applyStatusEvents(statusEventIds);
+        log.info("Updated status of {} SMS from {} status events", updatedCount, statusEventIds.size());
+        return unmatchedStatusEventIds;
     }
 }
@@ -0,0 +1,194 @@
+package org.codeforamerica.messaging.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.codeforamerica.messaging.models.StatusEvent;
+import org.codeforamerica.messaging.repositories.StatusEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Stages provider status callbacks and applies them in bulk. Recording a callback is a single insert, and every
+ * instance regularly applies the staged callbacks in batches, with one transaction per batch.
+ * <p>
+ * With async ingest enabled, recording a callback only puts it on a bounded queue, so the callback can be
+ * acknowledged straight away, and a background thread inserts queued callbacks in batches. When the queue is full
+ * callbacks are inserted on the request thread instead.
+ */
+@Service
+@Slf4j
+public class StatusEventService {
+    private final StatusEventRepository statusEventRepository;
+    private final SmsService smsService;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    @Value("${status-events.scheduled-apply.enabled}")
+    private boolean scheduledApplyEnabled;
+    @Value("${status-events.batch-size}")
+    private int batchSize;
+    @Value("${status-events.max-attempts}")
+    private int maxAttempts;
+    @Value("${status-events.unmatched-retry-delay-in-seconds}")
+    private long unmatchedRetryDelaySeconds;
+    private final boolean asyncIngestEnabled;
+    private final int ingestBatchSize;
+    private final BlockingQueue<StatusEvent> ingestQueue;
+    private Thread ingestThread;
+
+    public StatusEventService(StatusEventRepository statusEventRepository,
+            SmsService smsService,
+            EmailService emailService,
+            TransactionTemplate transactionTemplate,
+            @Value("${status-events.async-ingest.enabled}") boolean asyncIngestEnabled,
+            @Value("${status-events.async-ingest.queue-capacity}") int ingestQueueCapacity,
+            @Value("${status-events.async-ingest.batch-size}") int ingestBatchSize) {
+        this.statusEventRepository = statusEventRepository;
+        this.smsService = smsService;
+        this.emailService = emailService;
+        this.transactionTemplate = transactionTemplate;
+        this.asyncIngestEnabled = asyncIngestEnabled;
+        this.ingestBatchSize = ingestBatchSize;
+        this.ingestQueue = new ArrayBlockingQueue<>(ingestQueueCapacity);
+    }
+
+    public void record(StatusEvent statusEvent) {
+        statusEvent.setApplyAfter(OffsetDateTime.now());
+        if (!asyncIngestEnabled || !ingestQueue.offer(statusEvent)) {
+            statusEventRepository.save(statusEvent);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startIngesting() {
+        if (asyncIngestEnabled) {
+            ingestThread = new Thread(this::ingestQueuedStatusEvents, "status-event-ingest");
+            ingestThread.setDaemon(true);
+            ingestThread.start();
+        }
+    }
+
+    /**
+     * Stops the ingest thread and inserts whatever is still queued, so callbacks that were already acknowledged
+     * aren't lost on a normal shutdown.
+     */
+    @PreDestroy
+    public void stopIngesting() throws InterruptedException {
+        if (ingestThread != null) {
+            ingestThread.interrupt();
+            ingestThread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        List<StatusEvent> statusEvents = new ArrayList<>();
+        ingestQueue.drainTo(statusEvents);
+        if (!statusEvents.isEmpty()) {
+            log.info("Saving {} queued status events before shutting down", statusEvents.size());
+            statusEventRepository.saveAll(statusEvents);
+        }
+    }
+
+    private void ingestQueuedStatusEvents() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<StatusEvent> statusEvents = new ArrayList<>(ingestBatchSize);
+            try {
+                statusEvents.add(ingestQueue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            ingestQueue.drainTo(statusEvents, ingestBatchSize - 1);
+            saveUntilSuccessful(statusEvents);
+        }
+    }
+
+    /**
+     * Keeps trying while the database is unavailable. The queue fills up in the meantime, and callbacks then fail on
+     * the request thread, so providers retry them later.
+     */
+    private void saveUntilSuccessful(List<StatusEvent> statusEvents) {
+        while (true) {
+            try {
+                statusEventRepository.saveAll(statusEvents);
+                return;
+            } catch (RuntimeException e) {
+                log.error("Failed to save {} status events, trying again", statusEvents.size(), e);
+            }
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                log.error("Shutting down, dropping {} status events that could not be saved", statusEvents.size());
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${status-events.apply-interval-in-millis}",
+            initialDelayString = "${status-events.apply-interval-in-millis}")
+    public void applyStatusEventsOnSchedule() {
+        if (scheduledApplyEnabled) {
+            applyStatusEvents();
+        }
+    }
+
+    /**
+     * Applies batches of staged status events until there are none left that are ready.
+     *
+     * @return The number of events processed
+     */
+    public int applyStatusEvents() {
+        int processedCount = 0;
+        Integer batchCount;
+        do {
+            batchCount = transactionTemplate.execute(status -> applyNextStatusEvents());
+            processedCount += batchCount;
+        } while (batchCount == batchSize);
+        if (processedCount > 0) {
+            log.info("Processed {} status events", processedCount);
+        }
+        return processedCount;
+    }
+
+    /**
+     * Applies each channel's events with a single statement. Callbacks can arrive before the message they are for
+     * has been saved with its provider message id. Those events are kept and tried again later, and dropped after a
+     * number of attempts.
+     */
+    private int applyNextStatusEvents() {
+        List<StatusEvent> statusEvents = statusEventRepository.lockNextStatusEvents(batchSize);
+        Map<StatusEvent.Channel, List<Long>> statusEventIdsByChannel = statusEvents.stream()
+                .collect(Collectors.groupingBy(StatusEvent::getChannel,
+                        Collectors.mapping(StatusEvent::getId, Collectors.toList())));
+        Set<Long> unmatchedStatusEventIds = new HashSet<>();
+        if (statusEventIdsByChannel.containsKey(StatusEvent.Channel.sms)) {
+            unmatchedStatusEventIds.addAll(smsService.applyStatusEvents(statusEventIdsByChannel.get(StatusEvent.Channel.sms)));
+        }
+        if (statusEventIdsByChannel.containsKey(StatusEvent.Channel.email)) {
+            unmatchedStatusEventIds.addAll(emailService.applyStatusEvents(statusEventIdsByChannel.get(StatusEvent.Channel.email)));
+        }
+
+        List<StatusEvent> finishedStatusEvents = new ArrayList<>();
+        for (StatusEvent statusEvent : statusEvents) {
+            if (!unmatchedStatusEventIds.contains(statusEvent.getId())) {
+                finishedStatusEvents.add(statusEvent);
+            } else if (statusEvent.getAttempts() + 1 >= maxAttempts) {
+                log.error("Cannot find message with providerId: {}, dropping {} status {}",
+                        statusEvent.getProviderMessageId(), statusEvent.getChannel(), statusEvent.getStatus());
+                finishedStatusEvents.add(statusEvent);
+            } else {
+                statusEvent.setAttempts(statusEvent.getAttempts() + 1);
+                statusEvent.setApplyAfter(OffsetDateTime.now().plusSeconds(unmatchedRetryDelaySeconds));
+            }
+        }
+        statusEventRepository.deleteAll(finishedStatusEvents);
+        return statusEvents.size();
+    }
+}
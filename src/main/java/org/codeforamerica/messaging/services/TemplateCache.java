@@ -0,0 +1,197 @@
+package org.codeforamerica.messaging.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.codeforamerica.messaging.models.Template;
+import org.codeforamerica.messaging.models.TemplateVariant;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Caches templates by name, with their variants indexed by language and treatment, so scheduling a message doesn't
+ * load its template every time. Templates change rarely, and only through TemplateService, which invalidates them
+ * here and NOTIFYs the other instances. Each instance LISTENs on a connection of its own and drops templates changed
+ * elsewhere. Entries also expire after a while, in case a notification is missed.
+ * <p>
+ * Cached templates are shared between threads and must not be modified.
+ */
+@Component
+@Slf4j
+class TemplateCache {
+    static final String CHANNEL = "template_changed";
+
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<String, Snapshot> snapshotsByName = new ConcurrentHashMap<>();
+    private long generation;
+    private Thread listenerThread;
+    private volatile boolean listening;
+
+    record VariantKey(String language, String treatment) {
+    }
+
+    record Snapshot(Template template, Map<VariantKey, TemplateVariant> variants, Instant loadedAt) {
+        static Snapshot of(Template template) {
+            return new Snapshot(template, template.getTemplateVariants().stream()
+                    .collect(Collectors.toUnmodifiableMap(
+                            templateVariant -> new VariantKey(templateVariant.getLanguage(), templateVariant.getTreatment()),
+                            Function.identity())),
+                    Instant.now());
+        }
+
+        Optional<TemplateVariant> getTemplateVariant(String language, String treatment) {
+            return Optional.ofNullable(variants.get(new VariantKey(language, treatment)));
+        }
+    }
+
+    TemplateCache(@Value("${template-cache.enabled}") boolean enabled,
+            @Value("${template-cache.max-age-in-seconds}") long maxAgeSeconds,
+            DataSource dataSource,
+            JdbcTemplate jdbcTemplate) {
+        this.enabled = enabled;
+        this.maxAge = Duration.ofSeconds(maxAgeSeconds);
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    Optional<Snapshot> get(String name, Supplier<Optional<Template>> loader) {
+        if (!enabled) {
+            return loader.get().map(Snapshot::of);
+        }
+        String key = toKey(name);
+        Snapshot snapshot = snapshotsByName.get(key);
+        if (snapshot != null && snapshot.loadedAt().isAfter(Instant.now().minus(maxAge))) {
+            return Optional.of(snapshot);
+        }
+        long loadingGeneration;
+        synchronized (this) {
+            loadingGeneration = generation;
+        }
+        Optional<Snapshot> loaded = loader.get().map(Snapshot::of);
+        synchronized (this) {
+            // Don't cache a template that was changed while it was loading
+            if (loaded.isPresent() && generation == loadingGeneration) {
+                snapshotsByName.put(key, loaded.get());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops a changed template here and on every other instance. Call once the change has been saved.
+     */
+    void invalidate(String name) {
+        if (!enabled) {
+            return;
+        }
+        invalidateLocally(name);
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, toPayload(instanceId, name));
+    }
+
+    /**
+     * Notifications carry the sending instance's id, so an instance can skip its own.
+     */
+    static String toPayload(String instanceId, String name) {
+        return instanceId + ":" + toKey(name);
+    }
+
+    private synchronized void invalidateLocally(String name) {
+        generation++;
+        snapshotsByName.remove(toKey(name));
+    }
+
+    private synchronized void clear() {
+        generation++;
+        snapshotsByName.clear();
+    }
+
+    boolean isListening() {
+        return listening;
+    }
+
+    private static String toKey(String name) {
+        return name.strip().toLowerCase(Locale.ROOT);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startListening() {
+        if (enabled) {
+            listenerThread = new Thread(this::listenForChanges, "template-cache-listener");
+            listenerThread.setDaemon(true);
+            listenerThread.start();
+        }
+    }
+
+    @PreDestroy
+    public void stopListening() throws InterruptedException {
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            listenerThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void listenForChanges() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection connection = dataSource.getConnection()) {
+                try {
+                    listenForChanges(connection);
+                } finally {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("UNLISTEN " + CHANNEL);
+                    }
+                }
+            } catch (SQLException e) {
+                log.warn("Stopped receiving template changes, listening again shortly", e);
+            }
+            listening = false;
+            // Changes may have been missed while not listening
+            clear();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void listenForChanges(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + CHANNEL);
+        }
+        clear();
+        listening = true;
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (!Thread.currentThread().isInterrupted()) {
+            PGNotification[] notifications = pgConnection.getNotifications(1000);
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    String[] instanceIdAndName = notification.getParameter().split(":", 2);
+                    if (instanceIdAndName.length == 2 && !instanceId.equals(instanceIdAndName[0])) {
+                        invalidateLocally(instanceIdAndName[1]);
+                    }
+                }
+            }
+        }
+    }
+}
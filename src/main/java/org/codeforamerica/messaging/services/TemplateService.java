@@ -22,17 +22,38 @@ public class TemplateService {
 
     private final TemplateRepository templateRepository;
     private final MessageRepository messageRepository;
+    private final TemplateCache templateCache;
 
-    public TemplateService(TemplateRepository templateRepository, MessageRepository messageRepository) {
+    public TemplateService(TemplateRepository templateRepository, MessageRepository messageRepository,
+            TemplateCache templateCache) {
         this.templateRepository = templateRepository;
         this.messageRepository = messageRepository;
+        this.templateCache = templateCache;
     }
 
     public List<Template> getTemplateList() {
         return (List<Template>) templateRepository.findAll();
     }
 
+    /**
+     * @return A cached copy of the template, which must not be modified
+     */
     public Template getTemplateByName(String name) {
+        return getTemplateSnapshot(name).template();
+    }
+
+    public TemplateVariant getTemplateVariant(String templateName, String language, String treatment) {
+        return getTemplateSnapshot(templateName).getTemplateVariant(language, treatment).orElseThrow(() ->
+                new ElementNotFoundException("TemplateVariant not found: name=%s; language=%s; treatment=%s"
+                        .formatted(templateName, language, treatment)));
+    }
+
+    private TemplateCache.Snapshot getTemplateSnapshot(String name) {
+        return templateCache.get(name, () -> templateRepository.findFirstByNameIgnoreCase(name.strip())).orElseThrow(() ->
+                new ElementNotFoundException("Template not found: %s".formatted(name)));
+    }
+
+    private Template loadTemplateByName(String name) {
         return templateRepository.findFirstByNameIgnoreCase(name.strip()).orElseThrow(() ->
                 new ElementNotFoundException("Template not found: %s".formatted(name)));
     }
@@ -46,19 +67,22 @@ public class TemplateService {
             throw new EmptyTemplateVariantsException("At least one template variant is required");
         }
         template.getTemplateVariants().forEach(templateVariant -> templateVariant.setTemplate(template));
-        return templateRepository.save(template);
+        Template savedTemplate = templateRepository.save(template);
+        templateCache.invalidate(savedTemplate.getName());
+        return savedTemplate;
     }
 
     public void deleteTemplateAndVariants(String templateName) {
-        Template template = getTemplateByName(templateName);
+        Template template = loadTemplateByName(templateName);
         if (template.getTemplateVariants().stream().anyMatch(this::isTemplateVariantInUse)) {
             throw new TemplateInUseException("At least one template variant is currently in use and cannot be deleted");
         }
         templateRepository.delete(template);
+        templateCache.invalidate(template.getName());
     }
 
     public Template modifyTemplateVariants(String templateName, Set<TemplateVariant> newTemplateVariants) {
-        Template template = getTemplateByName(templateName);
+        Template template = loadTemplateByName(templateName);
         if (isAnyTemplateVariantInUse(template, newTemplateVariants)) {
             throw new TemplateInUseException("Cannot update a template variant that is already in use, list not updated");
         }
@@ -67,7 +91,7 @@ public class TemplateService {
                 template.mergeTemplateVariant(templateVariant);
             } catch (Exception ignored) {}
         });
-        return templateRepository.save(template);
+        return saveChangedTemplate(template);
     }
 
     public Template mergeTemplateVariant(
@@ -75,7 +99,7 @@ public class TemplateService {
             String language,
             String treatment,
             TemplateVariantRequest templateVariantRequest) {
-        Template template = getTemplateByName(templateName);
+        Template template = loadTemplateByName(templateName);
         template.mergeTemplateVariant(TemplateVariant.builder()
                 .subject(templateVariantRequest.getSubject())
                 .emailBody(templateVariantRequest.getEmailBody())
@@ -83,11 +107,11 @@ public class TemplateService {
                 .language(language)
                 .treatment(treatment)
                 .build());
-        return templateRepository.save(template);
+        return saveChangedTemplate(template);
     }
 
     public Template deleteTemplateVariant(String templateName, String language, String treatment) {
-        Template template = getTemplateByName(templateName);
+        Template template = loadTemplateByName(templateName);
         TemplateVariant templateVariant = template.getTemplateVariant(language, treatment).orElseThrow(() ->
                 new ElementNotFoundException("TemplateVariant not found: name=%s; language=%s; treatment=%s"
                         .formatted(templateName, language, treatment)));
@@ -95,7 +119,13 @@ public class TemplateService {
             throw new TemplateInUseException("Template variant is currently in use and cannot be deleted");
         }
         template.removeTemplateVariant(templateVariant);
-        return templateRepository.save(template);
+        return saveChangedTemplate(template);
+    }
+
+    private Template saveChangedTemplate(Template template) {
+        Template savedTemplate = templateRepository.save(template);
+        templateCache.invalidate(savedTemplate.getName());
+        return savedTemplate;
     }
 
     public boolean isAnyTemplateVariantInUse(Template template, Set<TemplateVariant> templateVariants) {
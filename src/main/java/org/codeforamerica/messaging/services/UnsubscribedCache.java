@@ -0,0 +1,52 @@
+package org.codeforamerica.messaging.services;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of the recipients whose latest subscription is unsubscribed. Very few recipients ever unsubscribe,
+ * so the set stays small and lets sends to everyone else skip the subscription query entirely.
+ * <p>
+ * Subscriptions saved by this instance are applied immediately. Subscriptions saved by other instances are picked
+ * up by periodically reapplying every subscription state updated since the last refresh, with an overlap to allow for
+ * clock skew and transactions that commit late.
+ */
+class UnsubscribedCache<T> {
+    static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+    private final Set<T> unsubscribedRecipients = ConcurrentHashMap.newKeySet();
+    private volatile OffsetDateTime refreshedAt;
+
+    boolean isLoaded() {
+        return refreshedAt != null;
+    }
+
+    boolean isUnsubscribed(T recipient) {
+        return unsubscribedRecipients.contains(recipient);
+    }
+
+    void update(T recipient, boolean unsubscribed) {
+        if (unsubscribed) {
+            unsubscribedRecipients.add(recipient);
+        } else {
+            unsubscribedRecipients.remove(recipient);
+        }
+    }
+
+    synchronized void load(Collection<T> recipients, OffsetDateTime loadedAt) {
+        unsubscribedRecipients.clear();
+        unsubscribedRecipients.addAll(recipients);
+        refreshedAt = loadedAt;
+    }
+
+    OffsetDateTime getRefreshStart() {
+        return refreshedAt.minus(REFRESH_OVERLAP);
+    }
+
+    void setRefreshedAt(OffsetDateTime refreshedAt) {
+        this.refreshedAt = refreshedAt;
+    }
+}
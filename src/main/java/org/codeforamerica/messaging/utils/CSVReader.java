@@ -5,8 +5,10 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,6 +31,25 @@ public class CSVReader {
         this.parser =  csvFormat.parse(reader);
     }
 
+    /**
+     * Resumes reading a CSV file part way through, starting at the record that begins at characterOffset.
+     */
+    public CSVReader(Reader reader, List<String> headerNames, long characterOffset) throws IOException {
+        long remaining = characterOffset;
+        while (remaining > 0) {
+            long skipped = reader.skip(remaining);
+            if (skipped <= 0) {
+                throw new EOFException("Character offset %s is past the end of the file".formatted(characterOffset));
+            }
+            remaining -= skipped;
+        }
+        var csvFormat = CSVFormat.Builder.create(CSVFormat.RFC4180)
+                .setHeader(headerNames.toArray(String[]::new))
+                .setIgnoreSurroundingSpaces(true)
+                .build();
+        this.parser = new CSVParser(reader, csvFormat, characterOffset, 1);
+    }
+
     public boolean isValidHeader(Set<String> requiredHeaderNames) {
         return CollectionUtils.isEqualCollection(requiredHeaderNames, parser.getHeaderNames());
     }
@@ -40,4 +61,8 @@ public class CSVReader {
     public Stream<Map<String, String>> stream() {
         return parser.stream().map(CSVRecord::toMap);
     }
+
+    public Iterator<CSVRecord> iterator() {
+        return parser.iterator();
+    }
 }
@@ -0,0 +1,2 @@
+alter table template_variant
+    add placeholders jsonb null;
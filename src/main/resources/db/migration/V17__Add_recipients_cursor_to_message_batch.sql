@@ -0,0 +1,6 @@
+alter table message_batch
+    add recipients_offset bigint not null default 0,
+    add recipients_scheduled boolean not null default false;
+
+update message_batch
+    set recipients_scheduled = true;
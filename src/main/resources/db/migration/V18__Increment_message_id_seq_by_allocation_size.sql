@@ -0,0 +1 @@
+alter sequence message_id_seq increment by 50;
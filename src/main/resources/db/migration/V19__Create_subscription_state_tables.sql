@@ -0,0 +1,29 @@
+CREATE TABLE sms_subscription_state
+(
+    phone_number     text                     not null,
+    unsubscribed     boolean                  not null,
+    update_timestamp timestamp with time zone not null,
+    primary key (phone_number)
+);
+
+CREATE INDEX sms_subscription_state_update_timestamp_idx ON sms_subscription_state (update_timestamp);
+
+INSERT INTO sms_subscription_state (phone_number, unsubscribed, update_timestamp)
+SELECT DISTINCT ON (phone_number) phone_number, unsubscribed, creation_timestamp
+FROM sms_subscription
+ORDER BY phone_number, creation_timestamp DESC;
+
+CREATE TABLE email_subscription_state
+(
+    email            text                     not null,
+    unsubscribed     boolean                  not null,
+    update_timestamp timestamp with time zone not null,
+    primary key (email)
+);
+
+CREATE INDEX email_subscription_state_update_timestamp_idx ON email_subscription_state (update_timestamp);
+
+INSERT INTO email_subscription_state (email, unsubscribed, update_timestamp)
+SELECT DISTINCT ON (email) email, unsubscribed, creation_timestamp
+FROM email_subscription
+ORDER BY email, creation_timestamp DESC;
@@ -0,0 +1,34 @@
+ALTER TABLE message
+    ADD COLUMN sms_duplicate_key   text,
+    ADD COLUMN email_duplicate_key text;
+
+CREATE INDEX message_sms_duplicate_key_idx ON message (sms_duplicate_key, update_timestamp);
+CREATE INDEX message_email_duplicate_key_idx ON message (email_duplicate_key, update_timestamp);
+
+-- Compute keys the same way as DuplicateKey.java for messages recent enough to be found as duplicates.
+-- Older messages are given keys when they are next updated.
+WITH encoded_message AS (
+    SELECT message.id,
+           octet_length(template_variant.template_id::text) || ':' || template_variant.template_id ||
+           coalesce((SELECT string_agg(octet_length(param.key) || ':' || param.key ||
+                                       octet_length(coalesce(param.value, '')) || ':' || coalesce(param.value, ''),
+                                       '' ORDER BY param.key COLLATE "C")
+                     FROM jsonb_each_text(message.template_params) param
+                     WHERE param.key <> 'treatment'), '') AS encoded_template
+    FROM message
+             JOIN template_variant ON template_variant.id = message.template_variant_id
+    WHERE message.update_timestamp > now() - interval '2 days'
+)
+UPDATE message
+SET sms_duplicate_key   = CASE
+                              WHEN message.to_phone IS NOT NULL THEN encode(sha256(convert_to(
+                                      '3:sms' || octet_length(message.to_phone) || ':' || message.to_phone ||
+                                      encoded_message.encoded_template, 'UTF8')), 'hex')
+    END,
+    email_duplicate_key = CASE
+                              WHEN message.to_email IS NOT NULL THEN encode(sha256(convert_to(
+                                      '5:email' || octet_length(message.to_email) || ':' || message.to_email ||
+                                      encoded_message.encoded_template, 'UTF8')), 'hex')
+    END
+FROM encoded_message
+WHERE message.id = encoded_message.id;
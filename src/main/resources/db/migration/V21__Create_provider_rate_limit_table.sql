@@ -0,0 +1,7 @@
+CREATE TABLE provider_rate_limit
+(
+    rate_limit_key text                     not null,
+    tokens         double precision         not null,
+    refilled_at    timestamp with time zone not null,
+    primary key (rate_limit_key)
+);
@@ -0,0 +1,5 @@
+alter type message_status add value 'retrying' before 'duplicate';
+
+ALTER TABLE message
+    ADD COLUMN sms_retry_count   integer not null default 0,
+    ADD COLUMN email_retry_count integer not null default 0;
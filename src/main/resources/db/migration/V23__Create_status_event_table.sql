@@ -0,0 +1,17 @@
+CREATE TABLE status_event
+(
+    id                  bigserial                not null,
+    channel             text                     not null,
+    provider_message_id text                     not null,
+    to_email            text,
+    from_phone          text,
+    raw_status          text                     not null,
+    status              message_status           not null,
+    provider_error      jsonb,
+    attempts            integer                  not null default 0,
+    apply_after         timestamp with time zone not null,
+    creation_timestamp  timestamp with time zone not null,
+    primary key (id)
+);
+
+CREATE INDEX status_event_apply_after_idx ON status_event (apply_after);
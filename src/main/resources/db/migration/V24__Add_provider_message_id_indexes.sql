@@ -0,0 +1,6 @@
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS sms_message_provider_message_id_idx
+    ON sms_message (provider_message_id);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS email_message_provider_message_id_to_email_idx
+    ON email_message (provider_message_id, lower(to_email));
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS message_sms_message_id_idx ON message (sms_message_id);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS message_email_message_id_idx ON message (email_message_id);
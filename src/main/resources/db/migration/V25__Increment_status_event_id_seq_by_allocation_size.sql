@@ -0,0 +1 @@
+alter sequence status_event_id_seq increment by 50;
@@ -0,0 +1,8 @@
+CREATE TABLE mailgun_webhook_token
+(
+    token      text                     not null,
+    expires_at timestamp with time zone not null,
+    primary key (token)
+);
+
+CREATE INDEX mailgun_webhook_token_expires_at_idx ON mailgun_webhook_token (expires_at);
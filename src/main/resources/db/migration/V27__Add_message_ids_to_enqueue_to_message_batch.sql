@@ -0,0 +1,2 @@
+alter table message_batch
+    add message_ids_to_enqueue jsonb;
@@ -0,0 +1,35 @@
+package org.codeforamerica.messaging.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class DatabaseIndexCheckTest {
+    @Autowired
+    DatabaseIndexCheck databaseIndexCheck;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void whenMigrationsHaveRun_ThenNoIndexesAreMissing() {
+        assertEquals(List.of(), databaseIndexCheck.findMissingIndexes());
+    }
+
+    @Test
+    public void whenIndexIsMissing_ThenItIsReported() {
+        DatabaseIndexCheck databaseIndexCheck = new DatabaseIndexCheck(jdbcTemplate) {
+            @Override
+            List<String> expectedIndexes() {
+                return List.of("message_pkey", "no_such_idx");
+            }
+        };
+
+        assertEquals(List.of("no_such_idx"), databaseIndexCheck.findMissingIndexes());
+    }
+}
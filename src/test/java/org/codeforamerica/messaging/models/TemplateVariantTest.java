@@ -8,6 +8,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
@@ -44,4 +45,26 @@ public class TemplateVariantTest {
         assertThrows(MissingParamsException.class, () -> templateVariant.build(TemplateVariant::getEmailBody, templateParams));
         assertThrows(MissingParamsException.class, () -> templateVariant.build(TemplateVariant::getSmsBody, templateParams));
     }
+
+    @Test
+    void whenSavedTemplateVariantIsBuiltRepeatedly_thenCompiledTemplateIsReused() {
+        TemplateVariant templateVariant = TestData.aTemplateVariant().id(TestData.BASE_ID).build();
+
+        assertSame(templateVariant.getCompiledTemplate(templateVariant.getSmsBody()),
+                templateVariant.getCompiledTemplate(templateVariant.getSmsBody()));
+    }
+
+    @Test
+    void whenTemplateVariantIsUpdated_thenBuildUsesNewBody() {
+        Template template = TestData.aTemplate().build();
+        TemplateVariant templateVariant = TestData.aTemplateVariant().id(TestData.BASE_ID).build();
+        template.addTemplateVariant(templateVariant);
+        Map<String, String> templateParams = Map.of("placeholder", "testing placeholder");
+        templateVariant.build(TemplateVariant::getSmsBody, templateParams);
+
+        template.updateTemplateVariant(templateVariant, "Updated Body: {{{placeholder}}}", null, null);
+
+        Assertions.assertEquals("Updated Body: testing placeholder",
+                templateVariant.build(TemplateVariant::getSmsBody, templateParams));
+    }
 }
@@ -0,0 +1,108 @@
+package org.codeforamerica.messaging.providers;
+
+import org.codeforamerica.messaging.exceptions.MessageSendException;
+import org.codeforamerica.messaging.exceptions.ProviderRateLimitedException;
+import org.codeforamerica.messaging.exceptions.ProviderUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+    private final MutableClock clock = new MutableClock();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("Provider", 2, Duration.ofSeconds(60), clock);
+
+    @Test
+    public void whenRetryableFailuresReachThreshold_ThenCircuitOpensAndSendsAreDeferred() {
+        failWith(new MessageSendException("Service unavailable", true));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        failWith(new MessageSendException("Service unavailable", true));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        clock.advance(Duration.ofSeconds(15));
+        ProviderUnavailableException e = assertThrows(ProviderUnavailableException.class,
+                () -> circuitBreaker.call(() -> fail("Called provider while circuit was open")));
+        assertEquals("Provider circuit is open", e.getMessage());
+        assertEquals(Duration.ofSeconds(45), e.getRetryAfter());
+    }
+
+    @Test
+    public void whenProviderRejectsRequestsOrRateLimits_ThenCircuitStaysClosed() {
+        failWith(new MessageSendException("Invalid phone number"));
+        failWith(new MessageSendException("Invalid phone number"));
+        failWith(new ProviderRateLimitedException("Provider", Duration.ofSeconds(1)));
+        failWith(new ProviderRateLimitedException("Provider", Duration.ofSeconds(1)));
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void whenProbeSucceedsAfterOpenDuration_ThenCircuitCloses() throws MessageSendException {
+        failWith(new MessageSendException("Service unavailable", true));
+        failWith(new MessageSendException("Service unavailable", true));
+        clock.advance(Duration.ofSeconds(60));
+
+        assertEquals("sent", circuitBreaker.call(() -> {
+            assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+            assertThrows(ProviderUnavailableException.class, () -> circuitBreaker.call(() -> "other"));
+            return "sent";
+        }));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void whenProbeFails_ThenCircuitOpensAgain() {
+        failWith(new MessageSendException("Service unavailable", true));
+        failWith(new MessageSendException("Service unavailable", true));
+        clock.advance(Duration.ofSeconds(60));
+
+        failWith(new MessageSendException("Service unavailable", true));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(clock.instant(), circuitBreaker.getOpenedAt());
+    }
+
+    @Test
+    public void whenCheckingAvailability_ThenCircuitStateIsUnchanged() {
+        failWith(new MessageSendException("Service unavailable", true));
+        failWith(new MessageSendException("Service unavailable", true));
+
+        assertThrows(ProviderUnavailableException.class, circuitBreaker::checkAvailable);
+        clock.advance(Duration.ofSeconds(60));
+        assertDoesNotThrow(circuitBreaker::checkAvailable);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void failWith(MessageSendException e) {
+        assertThrows(e.getClass(), () -> circuitBreaker.call(() -> {
+            throw e;
+        }));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant = Instant.parse("2023-05-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
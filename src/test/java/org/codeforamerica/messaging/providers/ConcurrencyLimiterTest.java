@@ -0,0 +1,61 @@
+package org.codeforamerica.messaging.providers;
+
+import org.codeforamerica.messaging.exceptions.MessageSendException;
+import org.codeforamerica.messaging.exceptions.ProviderUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+    @Test
+    public void whenRequestFinishes_ThenPermitIsReleased() throws MessageSendException {
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter("Provider", 1, Duration.ofMillis(100));
+
+        assertEquals("sent", concurrencyLimiter.call(() -> "sent"));
+        assertThrows(MessageSendException.class, () -> concurrencyLimiter.call(() -> {
+            throw new MessageSendException("failed");
+        }));
+        assertEquals(1, concurrencyLimiter.availablePermits());
+    }
+
+    @Test
+    public void whenTooManyRequestsAreInFlight_ThenRequestTimesOutWithoutSending() throws Exception {
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter("Provider", 1, Duration.ofMillis(100));
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch finishSending = new CountDownLatch(1);
+        CompletableFuture<String> inFlight = CompletableFuture.supplyAsync(() -> {
+            try {
+                return concurrencyLimiter.call(() -> {
+                    sending.countDown();
+                    awaitQuietly(finishSending);
+                    return "first";
+                });
+            } catch (MessageSendException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        ProviderUnavailableException e = assertThrows(ProviderUnavailableException.class,
+                () -> concurrencyLimiter.call(() -> fail("Sent while limit was reached")));
+        assertEquals("Timed out waiting to send to Provider", e.getMessage());
+        assertEquals(Duration.ofMillis(100), e.getRetryAfter());
+
+        finishSending.countDown();
+        assertEquals("first", inFlight.get(5, TimeUnit.SECONDS));
+        assertEquals("second", concurrencyLimiter.call(() -> "second"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
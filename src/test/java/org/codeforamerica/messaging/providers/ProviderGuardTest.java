@@ -0,0 +1,42 @@
+package org.codeforamerica.messaging.providers;
+
+import org.codeforamerica.messaging.exceptions.MessageSendException;
+import org.codeforamerica.messaging.exceptions.ProviderRateLimitedException;
+import org.codeforamerica.messaging.exceptions.ProviderUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+
+class ProviderGuardTest {
+    private final ProviderRateLimiter rateLimiter = Mockito.mock(ProviderRateLimiter.class);
+
+    @Test
+    public void whenCircuitIsOpen_ThenNoRateLimitTokensAreTaken() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("Provider", 1, Duration.ofSeconds(60));
+        assertThrows(MessageSendException.class, () -> circuitBreaker.call(() -> {
+            throw new MessageSendException("Service unavailable", true);
+        }));
+        ProviderGuard providerGuard = new ProviderGuard("Provider", circuitBreaker, rateLimiter, 1, Duration.ZERO);
+
+        assertThrows(ProviderUnavailableException.class, () -> providerGuard.send(1, () -> "sent"));
+        Mockito.verifyNoInteractions(rateLimiter);
+    }
+
+    @Test
+    public void whenRateLimited_ThenNoPermitIsHeldAndCircuitIsUnchanged() throws ProviderRateLimitedException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("Provider", 1, Duration.ofSeconds(60));
+        ProviderGuard providerGuard = new ProviderGuard("Provider", circuitBreaker, rateLimiter, 1, Duration.ZERO);
+        Mockito.doThrow(new ProviderRateLimitedException("Provider", Duration.ofSeconds(1)))
+                .when(rateLimiter).acquire(anyInt());
+
+        assertThrows(ProviderRateLimitedException.class, () -> providerGuard.send(1, () -> "sent"));
+        Mockito.doNothing().when(rateLimiter).acquire(anyInt());
+        assertEquals("sent", assertDoesNotThrow(() -> providerGuard.send(1, () -> "sent")));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getConsecutiveFailures());
+    }
+}
@@ -0,0 +1,66 @@
+package org.codeforamerica.messaging.providers;
+
+import org.codeforamerica.messaging.exceptions.ProviderRateLimitedException;
+import org.codeforamerica.messaging.repositories.ProviderRateLimitRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ProviderRateLimiterTest {
+    @Autowired
+    ProviderRateLimitRepository providerRateLimitRepository;
+
+    @AfterEach
+    void tearDown() {
+        providerRateLimitRepository.deleteAll();
+    }
+
+    @Test
+    public void whenBurstIsUsedUp_ThenAcquireIsRateLimitedUntilTokensRefill() throws ProviderRateLimitedException {
+        ProviderRateLimiter rateLimiter = new ProviderRateLimiter("Provider", "sender", true, 0.1, 2,
+                providerRateLimitRepository);
+        rateLimiter.acquire(1);
+        rateLimiter.acquire(1);
+
+        ProviderRateLimitedException e = assertThrows(ProviderRateLimitedException.class, () -> rateLimiter.acquire(1));
+        assertEquals("Rate limited by Provider", e.getMessage());
+        assertTrue(e.getRetryAfter().compareTo(Duration.ofSeconds(9)) > 0);
+        assertTrue(e.getRetryAfter().compareTo(Duration.ofSeconds(10)) <= 0);
+    }
+
+    @Test
+    public void whenBatchIsLargerThanAvailableTokens_ThenItIsSentAndLaterSendsWaitForTheDebt() throws ProviderRateLimitedException {
+        ProviderRateLimiter rateLimiter = new ProviderRateLimiter("Provider", "sender", true, 1, 10,
+                providerRateLimitRepository);
+        rateLimiter.acquire(30);
+
+        ProviderRateLimitedException e = assertThrows(ProviderRateLimitedException.class, () -> rateLimiter.acquire(1));
+        assertTrue(e.getRetryAfter().compareTo(Duration.ofSeconds(20)) > 0);
+    }
+
+    @Test
+    public void whenSendersAreDifferent_ThenEachHasItsOwnBucket() throws ProviderRateLimitedException {
+        new ProviderRateLimiter("Provider", "sender", true, 0.1, 1, providerRateLimitRepository).acquire(1);
+
+        new ProviderRateLimiter("Provider", "other-sender", true, 0.1, 1, providerRateLimitRepository).acquire(1);
+        assertEquals(2, providerRateLimitRepository.count());
+    }
+
+    @Test
+    public void whenDisabled_ThenAcquireNeverWaits() {
+        ProviderRateLimiter rateLimiter = new ProviderRateLimiter("Provider", "sender", false, 0.1, 1,
+                providerRateLimitRepository);
+
+        assertDoesNotThrow(() -> {
+            rateLimiter.acquire(1);
+            rateLimiter.acquire(1);
+        });
+        assertEquals(0, providerRateLimitRepository.count());
+    }
+}
@@ -1,15 +1,17 @@
 package org.codeforamerica.messaging.providers.mailgun;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.servlet.ServletException;
 import org.codeforamerica.messaging.TestData;
 import org.codeforamerica.messaging.config.SecurityConfiguration;
-import org.codeforamerica.messaging.jobs.EmailMessageStatusUpdateJobRequest;
 import org.codeforamerica.messaging.models.EmailMessage;
 import org.codeforamerica.messaging.models.Message;
 import org.codeforamerica.messaging.models.MessageStatus;
+import org.codeforamerica.messaging.models.StatusEvent;
 import org.codeforamerica.messaging.repositories.EmailMessageRepository;
 import org.codeforamerica.messaging.repositories.EmailSubscriptionRepository;
 import org.codeforamerica.messaging.services.EmailService;
-import org.jobrunr.scheduling.JobRequestScheduler;
+import org.codeforamerica.messaging.services.StatusEventService;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
@@ -22,10 +24,13 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
@@ -41,7 +46,7 @@ public class MailgunCallbackControllerTest {
     @MockBean
     EmailSubscriptionRepository emailSubscriptionRepository;
     @MockBean
-    JobRequestScheduler jobRequestScheduler;
+    StatusEventService statusEventService;
     @MockBean
     EmailService emailService;
     @Autowired
@@ -131,15 +136,15 @@ public class MailgunCallbackControllerTest {
                                     }
                                 """.formatted(severity, reason, TestData.PROVIDER_MESSAGE_ID, errorCode, errorMessage, errorDescription)))
                 .andExpect(MockMvcResultMatchers.status().isOk());
-        ArgumentCaptor<EmailMessageStatusUpdateJobRequest> emailMessageStatusUpdateJobRequestCaptor = ArgumentCaptor.forClass(EmailMessageStatusUpdateJobRequest.class);
-        Mockito.verify(jobRequestScheduler).enqueue(emailMessageStatusUpdateJobRequestCaptor.capture());
-        assertEquals(TestData.PROVIDER_MESSAGE_ID, emailMessageStatusUpdateJobRequestCaptor.getValue().getProviderMessageId());
-        assertEquals("failed", emailMessageStatusUpdateJobRequestCaptor.getValue().getRawStatus());
-        assertEquals(MessageStatus.undelivered, emailMessageStatusUpdateJobRequestCaptor.getValue().getMessageStatus());
+        ArgumentCaptor<StatusEvent> statusEventCaptor = ArgumentCaptor.forClass(StatusEvent.class);
+        Mockito.verify(statusEventService).record(statusEventCaptor.capture());
+        assertEquals(TestData.PROVIDER_MESSAGE_ID, statusEventCaptor.getValue().getProviderMessageId());
+        assertEquals("failed", statusEventCaptor.getValue().getRawStatus());
+        assertEquals(MessageStatus.undelivered, statusEventCaptor.getValue().getStatus());
         assertEquals(Map.of("severity", "permanent", "reason", "bounce",
                         "errorCode", "550", "errorMessage", "5.1.1 The email account that you tried to reach does not exist",
                         "errorDescription", ""),
-                emailMessageStatusUpdateJobRequestCaptor.getValue().getProviderError());
+                statusEventCaptor.getValue().getProviderError());
     }
 
     @Test
@@ -166,12 +171,12 @@ public class MailgunCallbackControllerTest {
                                     }
                                 """.formatted(newStatus, TestData.PROVIDER_MESSAGE_ID)))
                 .andExpect(MockMvcResultMatchers.status().isOk());
-        ArgumentCaptor<EmailMessageStatusUpdateJobRequest> emailMessageStatusUpdateJobRequestCaptor = ArgumentCaptor.forClass(EmailMessageStatusUpdateJobRequest.class);
-        Mockito.verify(jobRequestScheduler).enqueue(emailMessageStatusUpdateJobRequestCaptor.capture());
-        assertEquals(TestData.PROVIDER_MESSAGE_ID, emailMessageStatusUpdateJobRequestCaptor.getValue().getProviderMessageId());
-        assertEquals("accepted", emailMessageStatusUpdateJobRequestCaptor.getValue().getRawStatus());
-        assertEquals(MessageStatus.queued, emailMessageStatusUpdateJobRequestCaptor.getValue().getMessageStatus());
-        assertNull(emailMessageStatusUpdateJobRequestCaptor.getValue().getProviderError());
+        ArgumentCaptor<StatusEvent> statusEventCaptor = ArgumentCaptor.forClass(StatusEvent.class);
+        Mockito.verify(statusEventService).record(statusEventCaptor.capture());
+        assertEquals(TestData.PROVIDER_MESSAGE_ID, statusEventCaptor.getValue().getProviderMessageId());
+        assertEquals("accepted", statusEventCaptor.getValue().getRawStatus());
+        assertEquals(MessageStatus.queued, statusEventCaptor.getValue().getStatus());
+        assertNull(statusEventCaptor.getValue().getProviderError());
     }
 
     @Test
@@ -202,4 +207,40 @@ public class MailgunCallbackControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isOk());
         Mockito.verify(emailService).unsubscribe(recipient);
     }
+
+    @Test
+    public void whenProcessingFails_ThenRetriedWebhookIsAccepted() throws Exception {
+        Set<String> seenTokens = new HashSet<>();
+        Mockito.when(mailgunSignatureVerificationService.verifySignature(any())).thenAnswer(invocation ->
+                seenTokens.add(invocation.<JsonNode>getArgument(0).at("/signature/token").textValue()));
+        Mockito.doAnswer(invocation ->
+                seenTokens.remove(invocation.<JsonNode>getArgument(0).at("/signature/token").textValue()))
+                .when(mailgunSignatureVerificationService).forgetToken(any());
+        Mockito.doThrow(new IllegalStateException("Database is down")).doNothing()
+                .when(statusEventService).record(any());
+        String webhook = """
+                    {
+                        "signature": {
+                            "token": "token"
+                        },
+                        "event-data": {
+                            "event": "delivered",
+                            "message": {
+                              "headers": {
+                                "message-id": "%s"
+                              }
+                            }
+                        }
+                    }
+                """.formatted(TestData.PROVIDER_MESSAGE_ID);
+
+        assertThrows(ServletException.class, () -> mockMvc.perform(post("/public/mailgun_callbacks/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(webhook)));
+        mockMvc.perform(post("/public/mailgun_callbacks/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(webhook))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        Mockito.verify(statusEventService, Mockito.times(2)).record(any());
+    }
 }
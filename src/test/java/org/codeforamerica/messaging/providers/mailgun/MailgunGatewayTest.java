@@ -0,0 +1,72 @@
+package org.codeforamerica.messaging.providers.mailgun;
+
+import com.mailgun.api.v3.MailgunMessagesApi;
+import feign.Request;
+import feign.RetryableException;
+import org.codeforamerica.messaging.exceptions.MessageSendException;
+import org.codeforamerica.messaging.providers.CircuitBreaker;
+import org.codeforamerica.messaging.providers.ProviderRateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+class MailgunGatewayTest {
+    private final MailgunMessagesApi mailgunMessagesApi = Mockito.mock(MailgunMessagesApi.class);
+    private final ProviderRateLimiter rateLimiter = Mockito.mock(ProviderRateLimiter.class);
+    private final MailgunGateway mailgunGateway = new MailgunGateway(mailgunMessagesApi, 1, 10, rateLimiter,
+            new CircuitBreaker("Mailgun", 5, Duration.ofSeconds(60)));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(mailgunGateway, "from", "sender@example.com");
+    }
+
+    @Test
+    public void whenConnectFails_ThenSendIsRetryable() {
+        Mockito.when(mailgunMessagesApi.sendMessage(any(), any()))
+                .thenThrow(ioError(new ConnectException("Connection refused")));
+
+        MessageSendException e = assertThrows(MessageSendException.class,
+                () -> mailgunGateway.sendMessage("sample@example.com", "body", "subject"));
+        assertTrue(e.isRetryable());
+    }
+
+    @Test
+    public void whenReadTimesOut_ThenSendIsNotRetried() {
+        Mockito.when(mailgunMessagesApi.sendMessage(any(), any()))
+                .thenThrow(ioError(new SocketTimeoutException("Read timed out")));
+
+        MessageSendException e = assertThrows(MessageSendException.class,
+                () -> mailgunGateway.sendMessage("sample@example.com", "body", "subject"));
+        assertFalse(e.isRetryable());
+    }
+
+    @Test
+    public void whenReadTimesOut_ThenRetryerDoesNotRetry() {
+        RetryableException readTimeout = ioError(new SocketTimeoutException("Read timed out"));
+        RetryableException connectTimeout = ioError(new SocketTimeoutException("Connect timed out"));
+        MailgunRetryer retryer = new MailgunRetryer(new feign.Retryer.Default(1, 1, 2));
+
+        assertThrows(RetryableException.class, () -> retryer.clone().continueOrPropagate(readTimeout));
+        assertDoesNotThrow(() -> retryer.clone().continueOrPropagate(connectTimeout));
+    }
+
+    private static RetryableException ioError(IOException cause) {
+        // Feign wraps I/O errors this way, with no status
+        Request request = Request.create(Request.HttpMethod.POST, "https://api.mailgun.net/v3/example.com/messages",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        return new RetryableException(-1, cause.getMessage(), Request.HttpMethod.POST, cause, (Date) null, request);
+    }
+}
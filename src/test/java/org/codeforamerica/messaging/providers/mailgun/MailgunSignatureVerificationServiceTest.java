@@ -0,0 +1,125 @@
+package org.codeforamerica.messaging.providers.mailgun;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.codeforamerica.messaging.repositories.MailgunWebhookTokenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class MailgunSignatureVerificationServiceTest {
+    private static final String SIGNING_KEY = "signing-key";
+    private static final Instant NOW = Instant.parse("2023-06-01T12:00:00Z");
+
+    @Autowired
+    MailgunWebhookTokenRepository mailgunWebhookTokenRepository;
+
+    MailgunSignatureVerificationService mailgunSignatureVerificationService;
+
+    @BeforeEach
+    void setup() {
+        mailgunSignatureVerificationService = aService(NOW);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailgunWebhookTokenRepository.deleteAll();
+    }
+
+    @Test
+    public void whenSignatureMatches_ThenVerified() throws Exception {
+        String timestamp = String.valueOf(NOW.getEpochSecond());
+
+        assertTrue(mailgunSignatureVerificationService.verifySignature(aWebhook(timestamp, "token", sign(timestamp + "token"))));
+    }
+
+    @Test
+    public void whenSignatureDoesNotMatch_ThenNotVerified() throws Exception {
+        String timestamp = String.valueOf(NOW.getEpochSecond());
+
+        assertFalse(mailgunSignatureVerificationService.verifySignature(aWebhook(timestamp, "token", sign(timestamp + "other-token"))));
+        assertFalse(mailgunSignatureVerificationService.verifySignature(aWebhook(timestamp, "token", "not hex")));
+        assertFalse(mailgunSignatureVerificationService.verifySignature(aWebhook(timestamp, "token", null)));
+    }
+
+    @Test
+    public void whenTokenIsReused_ThenNotVerified() throws Exception {
+        String timestamp = String.valueOf(NOW.getEpochSecond());
+        JsonNode webhook = aWebhook(timestamp, "token", sign(timestamp + "token"));
+
+        assertTrue(mailgunSignatureVerificationService.verifySignature(webhook));
+        assertFalse(mailgunSignatureVerificationService.verifySignature(webhook));
+    }
+
+    @Test
+    public void whenTokenIsReusedOnAnotherInstance_ThenNotVerified() throws Exception {
+        String timestamp = String.valueOf(NOW.getEpochSecond());
+        JsonNode webhook = aWebhook(timestamp, "token", sign(timestamp + "token"));
+
+        assertTrue(mailgunSignatureVerificationService.verifySignature(webhook));
+        assertFalse(aService(NOW).verifySignature(webhook));
+    }
+
+    @Test
+    public void whenTokenIsForgotten_ThenWebhookCanBeRetried() throws Exception {
+        String timestamp = String.valueOf(NOW.getEpochSecond());
+        JsonNode webhook = aWebhook(timestamp, "token", sign(timestamp + "token"));
+
+        assertTrue(mailgunSignatureVerificationService.verifySignature(webhook));
+        mailgunSignatureVerificationService.forgetToken(webhook);
+        assertTrue(mailgunSignatureVerificationService.verifySignature(webhook));
+    }
+
+    @Test
+    public void whenTokensExpire_ThenTheyAreDeleted() throws Exception {
+        String timestamp = String.valueOf(NOW.getEpochSecond());
+        assertTrue(mailgunSignatureVerificationService.verifySignature(aWebhook(timestamp, "token", sign(timestamp + "token"))));
+
+        aService(NOW.plus(Duration.ofMinutes(14))).deleteExpiredTokens();
+        assertEquals(1, mailgunWebhookTokenRepository.count());
+        aService(NOW.plus(Duration.ofMinutes(15))).deleteExpiredTokens();
+        assertEquals(0, mailgunWebhookTokenRepository.count());
+    }
+
+    @Test
+    public void whenTimestampIsOutsideTheWindow_ThenNotVerified() throws Exception {
+        String timestamp = String.valueOf(NOW.minus(Duration.ofMinutes(16)).getEpochSecond());
+
+        assertFalse(mailgunSignatureVerificationService.verifySignature(aWebhook(timestamp, "token", sign(timestamp + "token"))));
+    }
+
+    private MailgunSignatureVerificationService aService(Instant now) {
+        return new MailgunSignatureVerificationService(SIGNING_KEY, Duration.ofMinutes(15),
+                mailgunWebhookTokenRepository, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static JsonNode aWebhook(String timestamp, String token, String signature) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        return objectMapper.createObjectNode().set("signature", objectMapper.createObjectNode()
+                .put("timestamp", timestamp)
+                .put("token", token)
+                .put("signature", signature));
+    }
+
+    private static String sign(String data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SIGNING_KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    }
+}
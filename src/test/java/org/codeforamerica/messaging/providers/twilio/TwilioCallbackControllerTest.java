@@ -2,13 +2,13 @@ package org.codeforamerica.messaging.providers.twilio;
 
 import org.codeforamerica.messaging.TestData;
 import org.codeforamerica.messaging.config.SecurityConfiguration;
-import org.codeforamerica.messaging.jobs.SmsMessageStatusUpdateJobRequest;
 import org.codeforamerica.messaging.models.Message;
 import org.codeforamerica.messaging.models.MessageStatus;
 import org.codeforamerica.messaging.models.SmsMessage;
+import org.codeforamerica.messaging.models.StatusEvent;
 import org.codeforamerica.messaging.repositories.SmsMessageRepository;
 import org.codeforamerica.messaging.services.SmsService;
-import org.jobrunr.scheduling.JobRequestScheduler;
+import org.codeforamerica.messaging.services.StatusEventService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -37,7 +37,7 @@ public class TwilioCallbackControllerTest {
     @MockBean
     SmsMessageRepository smsMessageRepository;
     @MockBean
-    JobRequestScheduler jobRequestScheduler;
+    StatusEventService statusEventService;
     @MockBean
     TwilioSignatureVerificationService twilioSignatureVerificationService;
     @MockBean
@@ -108,12 +108,12 @@ public class TwilioCallbackControllerTest {
                         .param("From", TwilioGateway.DEFAULT_FROM_PHONE.getNumber())
                         .param("MessageStatus", newStatus))
                 .andExpect(MockMvcResultMatchers.status().isOk());
-        ArgumentCaptor<SmsMessageStatusUpdateJobRequest> smsMessageStatusUpdateJobRequestCaptor = ArgumentCaptor.forClass(SmsMessageStatusUpdateJobRequest.class);
-        Mockito.verify(jobRequestScheduler).enqueue(smsMessageStatusUpdateJobRequestCaptor.capture());
-        assertEquals(TestData.PROVIDER_MESSAGE_ID, smsMessageStatusUpdateJobRequestCaptor.getValue().getProviderMessageId());
-        assertEquals(newStatus, smsMessageStatusUpdateJobRequestCaptor.getValue().getRawStatus());
-        assertEquals(MessageStatus.delivered, smsMessageStatusUpdateJobRequestCaptor.getValue().getMessageStatus());
-        assertNull(smsMessageStatusUpdateJobRequestCaptor.getValue().getProviderError());
+        ArgumentCaptor<StatusEvent> statusEventCaptor = ArgumentCaptor.forClass(StatusEvent.class);
+        Mockito.verify(statusEventService).record(statusEventCaptor.capture());
+        assertEquals(TestData.PROVIDER_MESSAGE_ID, statusEventCaptor.getValue().getProviderMessageId());
+        assertEquals(newStatus, statusEventCaptor.getValue().getRawStatus());
+        assertEquals(MessageStatus.delivered, statusEventCaptor.getValue().getStatus());
+        assertNull(statusEventCaptor.getValue().getProviderError());
     }
 
     @Test
@@ -134,14 +134,13 @@ public class TwilioCallbackControllerTest {
                         .param("ErrorCode", errorCode)
                         .param("ErrorMessage", errorMessage))
                 .andExpect(MockMvcResultMatchers.status().isOk());
-        ArgumentCaptor<SmsMessageStatusUpdateJobRequest> smsMessageStatusUpdateJobRequestCaptor = ArgumentCaptor.forClass(
-                SmsMessageStatusUpdateJobRequest.class);
-        Mockito.verify(jobRequestScheduler).enqueue(smsMessageStatusUpdateJobRequestCaptor.capture());
-        assertEquals(TestData.PROVIDER_MESSAGE_ID, smsMessageStatusUpdateJobRequestCaptor.getValue().getProviderMessageId());
-        assertEquals("undelivered", smsMessageStatusUpdateJobRequestCaptor.getValue().getRawStatus());
-        assertEquals(MessageStatus.undelivered, smsMessageStatusUpdateJobRequestCaptor.getValue().getMessageStatus());
+        ArgumentCaptor<StatusEvent> statusEventCaptor = ArgumentCaptor.forClass(StatusEvent.class);
+        Mockito.verify(statusEventService).record(statusEventCaptor.capture());
+        assertEquals(TestData.PROVIDER_MESSAGE_ID, statusEventCaptor.getValue().getProviderMessageId());
+        assertEquals("undelivered", statusEventCaptor.getValue().getRawStatus());
+        assertEquals(MessageStatus.undelivered, statusEventCaptor.getValue().getStatus());
         assertEquals(Map.of("errorCode", "30005", "errorMessage", "Unknown destination handset"),
-                smsMessageStatusUpdateJobRequestCaptor.getValue().getProviderError());
+                statusEventCaptor.getValue().getProviderError());
     }
 
     @Test
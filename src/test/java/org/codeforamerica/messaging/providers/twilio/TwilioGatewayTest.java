@@ -0,0 +1,88 @@
+package org.codeforamerica.messaging.providers.twilio;
+
+import com.twilio.exception.ApiConnectionException;
+import com.twilio.http.TwilioRestClient;
+import org.apache.http.conn.HttpHostConnectException;
+import org.codeforamerica.messaging.exceptions.MessageSendException;
+import org.codeforamerica.messaging.exceptions.ProviderRateLimitedException;
+import org.codeforamerica.messaging.exceptions.ProviderUnavailableException;
+import org.codeforamerica.messaging.providers.CircuitBreaker;
+import org.codeforamerica.messaging.providers.ProviderRateLimiter;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+
+class TwilioGatewayTest {
+    private final TwilioRestClient twilioRestClient = Mockito.mock(TwilioRestClient.class);
+    private final ProviderRateLimiter rateLimiter = Mockito.mock(ProviderRateLimiter.class);
+
+    @Test
+    public void whenConcurrencyLimitTimesOut_ThenCircuitBreakerIsUnchanged() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("Twilio", 1, Duration.ofSeconds(60));
+        TwilioGateway twilioGateway = new TwilioGateway(twilioRestClient, 0, 10, rateLimiter, circuitBreaker);
+
+        assertThrows(ProviderUnavailableException.class, () -> twilioGateway.sendMessage("+18885551212", "body"));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getConsecutiveFailures());
+        Mockito.verifyNoInteractions(twilioRestClient);
+    }
+
+    @Test
+    public void whenRateLimiterFails_ThenCircuitBreakerIsUnchanged() throws ProviderRateLimitedException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("Twilio", 1, Duration.ofSeconds(60));
+        TwilioGateway twilioGateway = new TwilioGateway(twilioRestClient, 1, 10, rateLimiter, circuitBreaker);
+        Mockito.doThrow(new IllegalStateException("Database is down")).when(rateLimiter).acquire(anyInt());
+
+        assertThrows(IllegalStateException.class, () -> twilioGateway.sendMessage("+18885551212", "body"));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void whenProbeIsRateLimited_ThenCircuitStaysOpenWithoutCallingTwilio() throws ProviderRateLimitedException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("Twilio", 1, Duration.ZERO);
+        assertThrows(MessageSendException.class, () -> circuitBreaker.call(() -> {
+            throw new MessageSendException("Service unavailable", true);
+        }));
+        TwilioGateway twilioGateway = new TwilioGateway(twilioRestClient, 1, 10, rateLimiter, circuitBreaker);
+        Mockito.doThrow(new ProviderRateLimitedException("Twilio", Duration.ofSeconds(1)))
+                .when(rateLimiter).acquire(anyInt());
+
+        assertThrows(ProviderRateLimitedException.class, () -> twilioGateway.sendMessage("+18885551212", "body"));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        Mockito.verifyNoInteractions(twilioRestClient);
+    }
+
+    @Test
+    public void whenConnectFails_ThenSendIsRetryable() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("Twilio", 5, Duration.ofSeconds(60));
+        TwilioGateway twilioGateway = new TwilioGateway(twilioRestClient, 1, 10, rateLimiter, circuitBreaker);
+        Mockito.when(twilioRestClient.getAccountSid()).thenReturn("AC123");
+        Mockito.when(twilioRestClient.request(any())).thenThrow(new ApiConnectionException("Connection refused",
+                new HttpHostConnectException(new ConnectException("Connection refused"), null)));
+
+        MessageSendException e = assertThrows(MessageSendException.class,
+                () -> twilioGateway.sendMessage("+18885551212", "body"));
+        assertTrue(e.isRetryable());
+    }
+
+    @Test
+    public void whenReadTimesOut_ThenSendIsNotRetried() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("Twilio", 5, Duration.ofSeconds(60));
+        TwilioGateway twilioGateway = new TwilioGateway(twilioRestClient, 1, 10, rateLimiter, circuitBreaker);
+        Mockito.when(twilioRestClient.getAccountSid()).thenReturn("AC123");
+        Mockito.when(twilioRestClient.request(any())).thenThrow(new ApiConnectionException("Read timed out",
+                new SocketTimeoutException("Read timed out")));
+
+        MessageSendException e = assertThrows(MessageSendException.class,
+                () -> twilioGateway.sendMessage("+18885551212", "body"));
+        assertFalse(e.isRetryable());
+    }
+}
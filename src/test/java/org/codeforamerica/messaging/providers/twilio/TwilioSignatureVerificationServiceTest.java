@@ -0,0 +1,121 @@
+package org.codeforamerica.messaging.providers.twilio;
+
+import com.twilio.security.RequestValidator;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TwilioSignatureVerificationServiceTest {
+    private static final String AUTH_TOKEN = "12345678901234567890123456789012";
+    private static final String URL = "https://example.com/public/twilio_callbacks/status";
+
+    TwilioSignatureVerificationService twilioSignatureVerificationService = new TwilioSignatureVerificationService(AUTH_TOKEN);
+
+    @Test
+    public void whenSignatureMatches_ThenVerified() throws Exception {
+        MockHttpServletRequest request = aCallbackRequest(null);
+        request.addHeader("X-Twilio-Signature", sign(URL + "From+15555550100MessageSidSM123MessageStatusdelivered"));
+
+        assertTrue(twilioSignatureVerificationService.verifySignature(request));
+    }
+
+    @Test
+    public void whenSignatureIncludesDefaultPort_ThenVerified() throws Exception {
+        MockHttpServletRequest request = aCallbackRequest(null);
+        request.addHeader("X-Twilio-Signature", sign(
+                "https://example.com:443/public/twilio_callbacks/status" +
+                        "From+15555550100MessageSidSM123MessageStatusdelivered"));
+
+        assertTrue(twilioSignatureVerificationService.verifySignature(request));
+    }
+
+    @Test
+    public void whenParameterIsInQueryString_ThenItIsOnlySignedAsPartOfTheUrl() throws Exception {
+        MockHttpServletRequest request = aCallbackRequest("id=1");
+        request.addHeader("X-Twilio-Signature", sign(URL + "?id=1" + "From+15555550100MessageSidSM123MessageStatusdelivered"));
+
+        assertTrue(twilioSignatureVerificationService.verifySignature(request));
+    }
+
+    @Test
+    public void whenParameterWasChanged_ThenNotVerified() throws Exception {
+        MockHttpServletRequest request = aCallbackRequest(null);
+        request.addHeader("X-Twilio-Signature", sign(URL + "From+15555550100MessageSidSM123MessageStatusfailed"));
+
+        assertFalse(twilioSignatureVerificationService.verifySignature(request));
+    }
+
+    @Test
+    public void whenSignatureIsMissingOrMalformed_ThenNotVerified() {
+        assertFalse(twilioSignatureVerificationService.verifySignature(aCallbackRequest(null)));
+
+        MockHttpServletRequest request = aCallbackRequest(null);
+        request.addHeader("X-Twilio-Signature", "not base64!");
+        assertFalse(twilioSignatureVerificationService.verifySignature(request));
+    }
+
+    @Test
+    public void whenVerifyingRequestsWithDifferentUrls_ThenResultMatchesTheSdk() throws Exception {
+        RequestValidator sdkValidator = new RequestValidator(AUTH_TOKEN);
+        Map<String, String> postParams = Map.of("From", "+15555550100", "MessageSid", "SM123", "MessageStatus", "delivered");
+        String signedPostParams = "From+15555550100MessageSidSM123MessageStatusdelivered";
+        for (int port : List.of(80, 8086)) {
+            for (String queryString : Arrays.asList(null, "id=1", "id=1&retry=2")) {
+                String requestUrl = "https://example.com" + (port == 80 ? "" : ":" + port)
+                        + "/public/twilio_callbacks/status" + (queryString == null ? "" : "?" + queryString);
+                List<String> signedUrls = List.of(requestUrl,
+                        requestUrl.replace("example.com/", "example.com:443/"),
+                        requestUrl.replace("/status", "/other"));
+                for (String signedUrl : signedUrls) {
+                    String signature = sign(signedUrl + signedPostParams);
+                    MockHttpServletRequest request = aCallbackRequest(queryString, port);
+                    request.addHeader("X-Twilio-Signature", signature);
+
+                    boolean sdkResult = sdkValidator.validate(requestUrl, postParams, signature);
+                    assertEquals(sdkResult, twilioSignatureVerificationService.verifySignature(request),
+                            "Signed %s, received %s".formatted(signedUrl, requestUrl));
+                    if (signedUrl.equals(requestUrl)) {
+                        assertTrue(sdkResult);
+                    }
+                }
+            }
+        }
+    }
+
+    private static MockHttpServletRequest aCallbackRequest(String queryString) {
+        return aCallbackRequest(queryString, 80);
+    }
+
+    private static MockHttpServletRequest aCallbackRequest(String queryString, int port) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/public/twilio_callbacks/status");
+        request.setScheme("http");
+        request.setServerName("example.com");
+        request.setServerPort(port);
+        request.setQueryString(queryString);
+        if (queryString != null) {
+            for (String param : queryString.split("&")) {
+                String[] nameAndValue = param.split("=", 2);
+                request.addParameter(nameAndValue[0], nameAndValue[1]);
+            }
+        }
+        request.addParameter("MessageSid", "SM123");
+        request.addParameter("MessageStatus", "delivered");
+        request.addParameter("From", "+15555550100");
+        return request;
+    }
+
+    private static String sign(String data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec(AUTH_TOKEN.getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+        return Base64.getEncoder().encodeToString(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    }
+}
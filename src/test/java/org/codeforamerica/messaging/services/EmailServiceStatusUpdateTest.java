@@ -60,7 +60,7 @@ class EmailServiceStatusUpdateTest {
         message.setEmailMessage(emailMessage);
         message = messageRepository.save(message);
 
-        emailService.updateStatus(emailMessage.getProviderMessageId(), MessageStatus.queued, "queued", null);
+        emailService.updateStatus(emailMessage.getProviderMessageId(), emailMessage.getToEmail(), MessageStatus.queued, "queued", null);
         Message updatedMessage = messageRepository.findById(message.getId()).get();
         assertEquals(MessageStatus.sent, updatedMessage.getEmailStatus());
     }
@@ -74,7 +74,7 @@ class EmailServiceStatusUpdateTest {
         message.setEmailMessage(emailMessage);
         message = messageRepository.save(message);
 
-        emailService.updateStatus(emailMessage.getProviderMessageId(), MessageStatus.delivered, "delivered", null);
+        emailService.updateStatus(emailMessage.getProviderMessageId(), emailMessage.getToEmail(), MessageStatus.delivered, "delivered", null);
         Message updatedMessage = messageRepository.findById(message.getId()).get();
         assertEquals(MessageStatus.delivered, updatedMessage.getEmailStatus());
     }
@@ -88,14 +88,34 @@ class EmailServiceStatusUpdateTest {
         message.setEmailMessage(emailMessage);
         message = messageRepository.save(message);
 
-        emailService.updateStatus(emailMessage.getProviderMessageId(), MessageStatus.delivered, "delivered", null);
+        emailService.updateStatus(emailMessage.getProviderMessageId(), emailMessage.getToEmail(), MessageStatus.delivered, "delivered", null);
         Message updatedMessage = messageRepository.findById(message.getId()).get();
         assertEquals(MessageStatus.delivered, updatedMessage.getEmailStatus());
     }
 
+    @Test
+    public void whenEmailsShareProviderMessageId_ThenOnlyRecipientsEmailIsUpdated() {
+        Message message = TestData.aMessage(templateVariant).emailStatus(MessageStatus.queued).build();
+        message = messageRepository.save(message);
+        EmailMessage emailMessage = TestData.anEmailMessage().message(message).build();
+        emailMessageRepository.save(emailMessage);
+        message.setEmailMessage(emailMessage);
+        message = messageRepository.save(message);
+        Message otherMessage = TestData.aMessage(templateVariant).emailStatus(MessageStatus.queued).build();
+        otherMessage = messageRepository.save(otherMessage);
+        EmailMessage otherEmailMessage = TestData.anEmailMessage().message(otherMessage).toEmail("other@example.com").build();
+        emailMessageRepository.save(otherEmailMessage);
+        otherMessage.setEmailMessage(otherEmailMessage);
+        otherMessage = messageRepository.save(otherMessage);
+
+        emailService.updateStatus(TestData.PROVIDER_MESSAGE_ID, "OTHER@example.com", MessageStatus.delivered, "delivered", null);
+        assertEquals(MessageStatus.queued, messageRepository.findById(message.getId()).get().getEmailStatus());
+        assertEquals(MessageStatus.delivered, messageRepository.findById(otherMessage.getId()).get().getEmailStatus());
+    }
+
     @Test
     public void whenMessageNotFound_ThenThrowException() {
-        assertThrows(JobRunrException.class, () -> emailService.updateStatus("invalid_provider_message_id", MessageStatus.queued, "queued", null));
+        assertThrows(JobRunrException.class, () -> emailService.updateStatus("invalid_provider_message_id", null, MessageStatus.queued, "queued", null));
     }
 
 }
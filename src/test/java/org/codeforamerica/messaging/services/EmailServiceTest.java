@@ -2,23 +2,25 @@ package org.codeforamerica.messaging.services;
 
 import org.codeforamerica.messaging.exceptions.MessageSendException;
 import org.codeforamerica.messaging.exceptions.UnsubscribedException;
-import org.codeforamerica.messaging.models.EmailSubscription;
+import org.codeforamerica.messaging.models.EmailSubscriptionState;
 import org.codeforamerica.messaging.providers.mailgun.MailgunGateway;
 import org.codeforamerica.messaging.repositories.EmailMessageRepository;
-import org.codeforamerica.messaging.repositories.EmailSubscriptionRepository;
+import org.codeforamerica.messaging.repositories.EmailSubscriptionStateRepository;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
+import java.util.Optional;
+
 import static org.junit.jupiter.api.Assertions.assertThrowsExactly;
 import static org.mockito.ArgumentMatchers.any;
 
-@SpringBootTest
+@SpringBootTest(properties = {"subscription-cache.enabled=false"})
 class EmailServiceTest {
     @MockBean
-    EmailSubscriptionRepository emailSubscriptionRepository;
+    EmailSubscriptionStateRepository emailSubscriptionStateRepository;
     @MockBean
     MailgunGateway mailgunGateway;
     @Autowired
@@ -28,24 +30,24 @@ class EmailServiceTest {
 
     @Test
     public void whenNoLatestEmailSubscription_ThenSendsEmail() throws MessageSendException {
-        Mockito.when(emailSubscriptionRepository.findFirstByEmailOrderByCreationTimestampDesc(any()))
-                .thenReturn(null);
+        Mockito.when(emailSubscriptionStateRepository.findById(any()))
+                .thenReturn(Optional.empty());
         emailService.sendEmailMessage("subscribed@example.com", "some body", "some subject");
         Mockito.verify(mailgunGateway).sendMessage(Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
     }
 
     @Test
     public void whenLatestEmailSubscriptionIsSubscribed_ThenSendsEmail() throws MessageSendException {
-        Mockito.when(emailSubscriptionRepository.findFirstByEmailOrderByCreationTimestampDesc(any()))
-                .thenReturn(EmailSubscription.builder().unsubscribed(false).build());
+        Mockito.when(emailSubscriptionStateRepository.findById(any()))
+                .thenReturn(Optional.of(EmailSubscriptionState.builder().unsubscribed(false).build()));
         emailService.sendEmailMessage("subscribed@example.com", "some body", "some subject");
         Mockito.verify(mailgunGateway).sendMessage(Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
     }
 
     @Test
     public void whenLatestEmailSubscriptionIsUnsubscribed_ThenThrowsUnsubscribedException() {
-        Mockito.when(emailSubscriptionRepository.findFirstByEmailOrderByCreationTimestampDesc(any()))
-                .thenReturn(EmailSubscription.builder().unsubscribed(true).build());
+        Mockito.when(emailSubscriptionStateRepository.findById(any()))
+                .thenReturn(Optional.of(EmailSubscriptionState.builder().unsubscribed(true).build()));
         assertThrowsExactly(UnsubscribedException.class, () ->  emailService.sendEmailMessage("unsubscribed@example.com", "some body", "some subject"));
     }
 }
@@ -0,0 +1,177 @@
+package org.codeforamerica.messaging.services;
+
+import org.codeforamerica.messaging.TestData;
+import org.codeforamerica.messaging.jobs.SendMessageBatchJobRequest;
+import org.codeforamerica.messaging.jobs.SendMessageJobRequest;
+import org.codeforamerica.messaging.models.Message;
+import org.codeforamerica.messaging.models.MessageBatch;
+import org.codeforamerica.messaging.models.Template;
+import org.codeforamerica.messaging.repositories.MessageBatchRepository;
+import org.codeforamerica.messaging.repositories.MessageRepository;
+import org.codeforamerica.messaging.repositories.TemplateRepository;
+import org.jobrunr.jobs.lambdas.JobRequest;
+import org.jobrunr.scheduling.JobRequestScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+
+@SpringBootTest(properties = {"message.batch-chunk-size=2"})
+class MessageServiceBatchChunkingTest {
+    @Autowired
+    MessageService messageService;
+    @MockBean
+    SmsService smsService;
+    @MockBean
+    EmailService emailService;
+    @MockBean
+    JobRequestScheduler jobRequestScheduler;
+    @Autowired
+    MessageRepository messageRepository;
+    @Autowired
+    TemplateRepository templateRepository;
+    @Autowired
+    MessageBatchRepository messageBatchRepository;
+
+    Template template;
+
+    @BeforeEach
+    void setup() {
+        template = TestData.aTemplate().build();
+        template = templateRepository.save(template);
+        TestData.addVariantsToTemplate(template);
+        template = templateRepository.save(template);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageRepository.deleteAll();
+        messageBatchRepository.deleteAll();
+        templateRepository.deleteAll();
+    }
+
+    @Test
+    void whenBatchIsLargerThanChunkSize_thenEachJobSchedulesOneChunkAndEnqueuesTheNext() {
+        String recipients = """
+                phone, email, placeholder
+                1234567890,one@example.org, placeholder
+                8885551212,two@example.com, placeholder
+                8885551313,three@example.com,
+                8885551414,four@example.com, placeholder
+                8885551515,five@example.com, placeholder
+                """;
+        MessageBatch messageBatch = MessageBatch.builder()
+                .template(template)
+                .recipients(recipients.getBytes())
+                .build();
+        messageBatchRepository.save(messageBatch);
+
+        messageService.scheduleMessagesInBatch(messageBatch.getId());
+        assertThat(messageRepository.findMessagesByMessageBatchId(messageBatch.getId()).stream().map(Message::getToEmail))
+                .containsExactlyInAnyOrderElementsOf(List.of("one@example.org", "two@example.com"));
+
+        messageService.scheduleMessagesInBatch(messageBatch.getId());
+        messageService.scheduleMessagesInBatch(messageBatch.getId());
+        Mockito.verify(jobRequestScheduler, times(2)).enqueue((JobRequest) argThat(x ->
+                x instanceof SendMessageBatchJobRequest request && request.getMessageBatchId().equals(messageBatch.getId())));
+        assertThat(messageRepository.findMessagesByMessageBatchId(messageBatch.getId()).stream().map(Message::getToEmail))
+                .containsExactlyInAnyOrderElementsOf(List.of(
+                        "one@example.org", "two@example.com", "four@example.com", "five@example.com"));
+
+        MessageBatch scheduledMessageBatch = messageBatchRepository.findById(messageBatch.getId()).get();
+        assertTrue(scheduledMessageBatch.isRecipientsScheduled());
+        assertEquals(1, scheduledMessageBatch.getRecipientErrorRows().size());
+    }
+
+    @Test
+    void whenBatchJobRunsAgainAfterAllRecipientsAreScheduled_thenNothingIsRescheduled() {
+        String recipients = """
+                phone, email, placeholder
+                1234567890,one@example.org, placeholder
+                """;
+        MessageBatch messageBatch = MessageBatch.builder()
+                .template(template)
+                .recipients(recipients.getBytes())
+                .build();
+        messageBatchRepository.save(messageBatch);
+
+        messageService.scheduleMessagesInBatch(messageBatch.getId());
+        messageService.scheduleMessagesInBatch(messageBatch.getId());
+        Mockito.verify(jobRequestScheduler, times(1)).enqueue(any(Stream.class));
+        assertEquals(1, messageRepository.findMessagesByMessageBatchId(messageBatch.getId()).size());
+    }
+
+    @Test
+    void whenChunkIsScheduled_thenSendJobsAreEnqueuedAfterItsMessagesAreCommitted() {
+        String recipients = """
+                phone, email, placeholder
+                1234567890,one@example.org, placeholder
+                8885551212,two@example.com, placeholder
+                """;
+        MessageBatch messageBatch = MessageBatch.builder()
+                .template(template)
+                .recipients(recipients.getBytes())
+                .build();
+        messageBatchRepository.save(messageBatch);
+        AtomicBoolean enqueuedInTransaction = new AtomicBoolean();
+        Mockito.doAnswer(invocation -> {
+            enqueuedInTransaction.set(TransactionSynchronizationManager.isActualTransactionActive());
+            return null;
+        }).when(jobRequestScheduler).enqueue(any(Stream.class));
+
+        messageService.scheduleMessagesInBatch(messageBatch.getId());
+
+        Mockito.verify(jobRequestScheduler).enqueue(any(Stream.class));
+        assertFalse(enqueuedInTransaction.get());
+    }
+
+    @Test
+    void whenEnqueueingSendJobsFails_thenRetryEnqueuesThemBeforeTheNextChunk() {
+        String recipients = """
+                phone, email, placeholder
+                1234567890,one@example.org, placeholder
+                8885551212,two@example.com, placeholder
+                8885551313,three@example.com, placeholder
+                """;
+        MessageBatch messageBatch = MessageBatch.builder()
+                .template(template)
+                .recipients(recipients.getBytes())
+                .build();
+        messageBatchRepository.save(messageBatch);
+        Mockito.doThrow(new IllegalStateException("Job storage is down"))
+                .doNothing()
+                .when(jobRequestScheduler).enqueue(any(Stream.class));
+
+        assertThrows(IllegalStateException.class, () -> messageService.scheduleMessagesInBatch(messageBatch.getId()));
+        List<Long> firstChunkIds = messageRepository.findMessagesByMessageBatchId(messageBatch.getId()).stream()
+                .map(Message::getId)
+                .toList();
+        messageService.scheduleMessagesInBatch(messageBatch.getId());
+
+        ArgumentCaptor<Stream<SendMessageJobRequest>> jobRequestsCaptor = ArgumentCaptor.forClass(Stream.class);
+        Mockito.verify(jobRequestScheduler, times(3)).enqueue(jobRequestsCaptor.capture());
+        List<Stream<SendMessageJobRequest>> enqueued = jobRequestsCaptor.getAllValues();
+        assertThat(enqueued.get(1).map(SendMessageJobRequest::getMessageId)).containsExactlyInAnyOrderElementsOf(firstChunkIds);
+        assertThat(enqueued.get(2).map(SendMessageJobRequest::getMessageId)).hasSize(1).doesNotContainAnyElementsOf(firstChunkIds);
+        assertNull(messageBatchRepository.findById(messageBatch.getId()).get().getMessageIdsToEnqueue());
+    }
+}
@@ -0,0 +1,76 @@
+package org.codeforamerica.messaging.services;
+
+import org.codeforamerica.messaging.TestData;
+import org.codeforamerica.messaging.exceptions.MessageSendException;
+import org.codeforamerica.messaging.models.Message;
+import org.codeforamerica.messaging.models.MessageStatus;
+import org.codeforamerica.messaging.models.SmsMessage;
+import org.codeforamerica.messaging.models.Template;
+import org.codeforamerica.messaging.repositories.MessageRepository;
+import org.codeforamerica.messaging.repositories.SmsMessageRepository;
+import org.codeforamerica.messaging.repositories.TemplateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+
+@SpringBootTest(properties = {
+        "message.duplicate-suppression-window-duration-in-hours=23",
+        "message.duplicate-cache.enabled=true"
+})
+class MessageServiceDuplicateMessageCacheTest {
+    @Autowired
+    MessageService messageService;
+    @MockBean
+    SmsService smsService;
+    @MockBean
+    EmailService emailService;
+    @SpyBean
+    MessageRepository messageRepository;
+    @Autowired
+    SmsMessageRepository smsMessageRepository;
+    @Autowired
+    TemplateRepository templateRepository;
+
+    Template template;
+
+    @BeforeEach
+    void setup() throws MessageSendException {
+        template = TestData.aTemplate().build();
+        template = templateRepository.save(template);
+        TestData.addVariantsToTemplate(template);
+        template = templateRepository.save(template);
+        SmsMessage sentSmsMessage = smsMessageRepository.save(TestData.anSmsMessage().build());
+        Mockito.when(smsService.sendSmsMessage(any(), anyString())).thenReturn(sentSmsMessage);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageRepository.deleteAll();
+        smsMessageRepository.deleteAll();
+        templateRepository.deleteAll();
+    }
+
+    @Test
+    void whenSameSmsWasSentByThisInstance_thenDuplicateIsFoundWithoutQueryingMessages() throws MessageSendException {
+        Message sentMessage = messageService.saveMessage(TestData.aMessageRequest().toPhone(TestData.TO_PHONE).build(), null);
+        messageService.sendMessage(sentMessage.getId());
+        assertEquals(MessageStatus.submission_succeeded, messageRepository.findById(sentMessage.getId()).get().getSmsStatus());
+
+        Message message = messageService.saveMessage(TestData.aMessageRequest().toPhone(TestData.TO_PHONE).build(), null);
+        messageService.sendMessage(message.getId());
+
+        assertEquals(MessageStatus.duplicate, messageRepository.findById(message.getId()).get().getSmsStatus());
+        Mockito.verify(smsService, times(1)).sendSmsMessage(any(), anyString());
+        Mockito.verify(messageRepository, times(1)).existsSentSmsWithDuplicateKeyUpdatedAfter(anyString(), any());
+    }
+}
@@ -85,6 +85,7 @@ class MessageServiceDuplicateMessagesTest {
             .build();
         emailMessageRepository.save(sentEmailMessage);
         Message sentMessage = TestData.aMessage(template.getTemplateVariant("en", "A").get())
+            .toEmail(TestData.TO_EMAIL)
             .emailMessage(sentEmailMessage)
             .emailStatus(MessageStatus.delivered)
             .build();
@@ -107,6 +108,7 @@ class MessageServiceDuplicateMessagesTest {
             .build();
         emailMessageRepository.save(sentEmailMessage);
         Message sentMessage = TestData.aMessage(template.getTemplateVariant("en", "A").get())
+            .toEmail(TestData.TO_EMAIL)
             .emailMessage(sentEmailMessage)
             .emailStatus(MessageStatus.delivered)
             .build();
@@ -126,12 +128,43 @@ class MessageServiceDuplicateMessagesTest {
         Assertions.assertEquals("Duplicate message", messageRepository.findById(message.getId()).get().getEmailErrorMessage());
     }
 
+    @Test
+    void whenCheckingForDuplicates_thenEarlierMessagesAreNotUpdated() throws MessageSendException {
+        EmailMessage sentEmailMessage = TestData.anEmailMessage()
+            .build();
+        emailMessageRepository.save(sentEmailMessage);
+        Message sentMessage = TestData.aMessage(template.getTemplateVariant("en", "A").get())
+            .toEmail(TestData.TO_EMAIL)
+            .templateParams(Map.of(
+                "placeholder", "{{{placeholder}}}",
+                TREATMENT_HEADER, "A"))
+            .emailMessage(sentEmailMessage)
+            .emailStatus(MessageStatus.delivered)
+            .build();
+        sentMessage = messageRepository.save(sentMessage);
+
+        MessageRequest messageRequest = TestData.aMessageRequest()
+            .toEmail(TestData.TO_EMAIL)
+            .templateParams(Map.of(
+                "placeholder", "{{{placeholder}}}",
+                TREATMENT_HEADER, "B"))
+            .build();
+        Message message = messageService.saveMessage(messageRequest, null);
+
+        messageService.sendMessage(message.getId());
+        Message checkedMessage = messageRepository.findById(sentMessage.getId()).get();
+        Assertions.assertEquals(sentMessage.getVersion(), checkedMessage.getVersion());
+        Assertions.assertEquals("A", checkedMessage.getTemplateParams().get(TREATMENT_HEADER));
+        Assertions.assertEquals("B", messageRepository.findById(message.getId()).get().getTemplateParams().get(TREATMENT_HEADER));
+    }
+
     @Test
     void whenMessageRequestIsDuplicateEmailNewTreatmentNewPlaceholder_thenSendEmail() throws MessageSendException {
         EmailMessage sentEmailMessage = TestData.anEmailMessage()
             .build();
         emailMessageRepository.save(sentEmailMessage);
         Message sentMessage = TestData.aMessage(template.getTemplateVariant("en", "A").get())
+            .toEmail(TestData.TO_EMAIL)
             .emailMessage(sentEmailMessage)
             .emailStatus(MessageStatus.delivered)
             .build();
@@ -155,6 +188,7 @@ class MessageServiceDuplicateMessagesTest {
             .build();
         emailMessageRepository.save(sentEmailMessage);
         Message sentMessage = TestData.aMessage(template.getTemplateVariant("en", "A").get())
+            .toEmail(TestData.TO_EMAIL)
             .emailMessage(sentEmailMessage)
             .emailStatus(MessageStatus.delivered)
             .build();
@@ -172,12 +206,34 @@ class MessageServiceDuplicateMessagesTest {
         Mockito.verify(emailService).sendEmailMessage(anyString(), anyString(), anyString());
     }
 
+    @Test
+    void whenMessageRequestIsSameTemplateSamePlaceholdersNewEmail_thenSendEmail() throws MessageSendException {
+        EmailMessage sentEmailMessage = TestData.anEmailMessage()
+            .build();
+        emailMessageRepository.save(sentEmailMessage);
+        Message sentMessage = TestData.aMessage(template.getTemplateVariant("en", "A").get())
+            .toEmail(TestData.TO_EMAIL)
+            .emailMessage(sentEmailMessage)
+            .emailStatus(MessageStatus.delivered)
+            .build();
+        messageRepository.save(sentMessage);
+
+        MessageRequest messageRequest = TestData.aMessageRequest()
+            .toEmail("another-recipient@example.com")
+            .build();
+        Message message = messageService.saveMessage(messageRequest, null);
+
+        messageService.sendMessage(message.getId());
+        Mockito.verify(emailService).sendEmailMessage(anyString(), anyString(), anyString());
+    }
+
     @Test
     void whenMessageRequestIsDuplicateSms_thenDoNotSendSms() throws MessageSendException {
         SmsMessage sentSmsMessage = TestData.anSmsMessage()
             .build();
         smsMessageRepository.save(sentSmsMessage);
         Message sentMessage = TestData.aMessage(template.getTemplateVariant("en", "A").get())
+            .toPhone(TestData.TO_PHONE)
             .smsMessage(sentSmsMessage)
             .smsStatus(MessageStatus.delivered)
             .build();
@@ -200,6 +256,7 @@ class MessageServiceDuplicateMessagesTest {
             .build();
         smsMessageRepository.save(sentSmsMessage);
         Message sentMessage = TestData.aMessage(template.getTemplateVariant("en", "A").get())
+            .toPhone(TestData.TO_PHONE)
             .smsMessage(sentSmsMessage)
             .smsStatus(MessageStatus.delivered)
             .build();
@@ -225,6 +282,7 @@ class MessageServiceDuplicateMessagesTest {
             .build();
         smsMessageRepository.save(sentSmsMessage);
         Message sentMessage = TestData.aMessage(template.getTemplateVariant("en", "A").get())
+            .toPhone(TestData.TO_PHONE)
             .smsMessage(sentSmsMessage)
             .smsStatus(MessageStatus.delivered)
             .build();
@@ -248,6 +306,7 @@ class MessageServiceDuplicateMessagesTest {
             .build();
         smsMessageRepository.save(sentSmsMessage);
         Message sentMessage = TestData.aMessage(template.getTemplateVariant("en", "A").get())
+            .toPhone(TestData.TO_PHONE)
             .smsMessage(sentSmsMessage)
             .smsStatus(MessageStatus.delivered)
             .build();
@@ -0,0 +1,197 @@
+package org.codeforamerica.messaging.services;
+
+import org.codeforamerica.messaging.TestData;
+import org.codeforamerica.messaging.exceptions.MessageSendException;
+import org.codeforamerica.messaging.jobs.SendMessagesJobRequest;
+import org.codeforamerica.messaging.models.EmailMessage;
+import org.codeforamerica.messaging.models.Message;
+import org.codeforamerica.messaging.models.MessageStatus;
+import org.codeforamerica.messaging.models.PhoneNumber;
+import org.codeforamerica.messaging.models.Template;
+import org.codeforamerica.messaging.providers.mailgun.MailgunGateway;
+import org.codeforamerica.messaging.repositories.*;
+import org.jobrunr.jobs.lambdas.JobRequest;
+import org.jobrunr.scheduling.JobRequestScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+
+@SpringBootTest(properties = {"message.email-batch-sending.enabled=true"})
+class MessageServiceEmailBatchSendingTest {
+    @Autowired
+    MessageService messageService;
+    @Autowired
+    EmailService emailService;
+    @MockBean
+    SmsService smsService;
+    @MockBean
+    MailgunGateway mailgunGateway;
+    @MockBean
+    JobRequestScheduler jobRequestScheduler;
+    @Autowired
+    MessageRepository messageRepository;
+    @Autowired
+    EmailMessageRepository emailMessageRepository;
+    @Autowired
+    SmsMessageRepository smsMessageRepository;
+    @Autowired
+    EmailSubscriptionRepository emailSubscriptionRepository;
+    @Autowired
+    EmailSubscriptionStateRepository emailSubscriptionStateRepository;
+    @Autowired
+    TemplateRepository templateRepository;
+
+    Template template;
+
+    @BeforeEach
+    void setup() throws MessageSendException {
+        template = TestData.aTemplate().build();
+        template = templateRepository.save(template);
+        TestData.addVariantsToTemplate(template);
+        template = templateRepository.save(template);
+        AtomicInteger batchCount = new AtomicInteger();
+        Mockito.when(mailgunGateway.sendMessages(any())).thenAnswer(invocation -> {
+            List<EmailMessage> emailMessages = invocation.getArgument(0);
+            String providerMessageId = TestData.PROVIDER_MESSAGE_ID + "-" + batchCount.incrementAndGet();
+            emailMessages.forEach(emailMessage -> {
+                emailMessage.setFromEmail(TestData.FROM_EMAIL);
+                emailMessage.setProviderMessageId(providerMessageId);
+            });
+            return emailMessages;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageRepository.deleteAll();
+        emailMessageRepository.deleteAll();
+        smsMessageRepository.deleteAll();
+        emailSubscriptionRepository.deleteAll();
+        emailSubscriptionStateRepository.deleteAll();
+        templateRepository.deleteAll();
+    }
+
+    @Test
+    void whenSendingMessages_thenEmailsAreSentTogetherWithOneBatchPerRecipient() throws MessageSendException {
+        Message first = saveEmailMessage("one@example.com", "first");
+        Message second = saveEmailMessage("two@example.com", "second");
+        Message third = saveEmailMessage("ONE@example.com", "third");
+
+        messageService.sendMessages(List.of(first.getId(), second.getId(), third.getId()));
+
+        ArgumentCaptor<List<EmailMessage>> emailBatchCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(mailgunGateway, times(2)).sendMessages(emailBatchCaptor.capture());
+        assertThat(emailBatchCaptor.getAllValues().get(0).stream().map(EmailMessage::getToEmail))
+                .containsExactly("one@example.com", "two@example.com");
+        assertThat(emailBatchCaptor.getAllValues().get(1).stream().map(EmailMessage::getToEmail))
+                .containsExactly("ONE@example.com");
+        assertThat(emailBatchCaptor.getAllValues().get(1).get(0).getBody())
+                .contains("English A Body: third", "To unsubscribe click: %unsubscribe_url%");
+        for (Message message : messageRepository.findAllById(List.of(first.getId(), second.getId(), third.getId()))) {
+            assertEquals(MessageStatus.submission_succeeded, message.getEmailStatus());
+            assertEquals(TestData.PROVIDER_MESSAGE_ID + (message.getId().equals(third.getId()) ? "-2" : "-1"),
+                    message.getEmailMessage().getProviderMessageId());
+        }
+    }
+
+    @Test
+    void whenRecipientIsUnsubscribed_thenTheirEmailIsNotSent() throws MessageSendException {
+        emailService.unsubscribe("unsubscribed@example.com");
+        Message subscribed = saveEmailMessage("subscribed@example.com", "subscribed");
+        Message unsubscribed = saveEmailMessage("unsubscribed@example.com", "unsubscribed");
+
+        messageService.sendMessages(List.of(subscribed.getId(), unsubscribed.getId()));
+
+        ArgumentCaptor<List<EmailMessage>> emailBatchCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(mailgunGateway).sendMessages(emailBatchCaptor.capture());
+        assertThat(emailBatchCaptor.getValue().stream().map(EmailMessage::getToEmail))
+                .containsExactly("subscribed@example.com");
+        assertEquals(MessageStatus.unsubscribed, messageRepository.findById(unsubscribed.getId()).get().getEmailStatus());
+    }
+
+    @Test
+    void whenMailgunFails_thenEveryEmailInTheBatchFails() throws MessageSendException {
+        Mockito.doThrow(new MessageSendException("Mailgun is down")).when(mailgunGateway).sendMessages(any());
+        Message first = saveEmailMessage("one@example.com", "first");
+        Message second = saveEmailMessage("two@example.com", "second");
+
+        messageService.sendMessages(List.of(first.getId(), second.getId()));
+
+        for (Message message : messageRepository.findAllById(List.of(first.getId(), second.getId()))) {
+            assertEquals(MessageStatus.submission_failed, message.getEmailStatus());
+            assertEquals("Mailgun is down", message.getEmailErrorMessage());
+        }
+    }
+
+    @Test
+    void whenOneSmsFailsWithRetryableError_thenTheRestAreSentAndOnlyItIsRescheduled() throws MessageSendException {
+        PhoneNumber failingPhone = PhoneNumber.valueOf("8885551212");
+        AtomicInteger smsCount = new AtomicInteger();
+        Mockito.when(smsService.sendSmsMessage(any(), anyString())).thenAnswer(invocation ->
+                smsMessageRepository.save(TestData.anSmsMessage()
+                        .providerMessageId(TestData.PROVIDER_MESSAGE_ID + "-" + smsCount.incrementAndGet())
+                        .build()));
+        Mockito.when(smsService.sendSmsMessage(eq(failingPhone), anyString()))
+                .thenThrow(new MessageSendException("Service unavailable", true));
+        Message failing = saveMessage(failingPhone, "one@example.com");
+        Message second = saveMessage(PhoneNumber.valueOf("8885551313"), "two@example.com");
+        Message third = saveMessage(PhoneNumber.valueOf("8885551414"), "three@example.com");
+
+        messageService.sendMessages(List.of(failing.getId(), second.getId(), third.getId()));
+
+        Mockito.verify(smsService, times(3)).sendSmsMessage(any(), anyString());
+        Mockito.verify(mailgunGateway).sendMessages(any());
+        assertEquals(MessageStatus.retrying, messageRepository.findById(failing.getId()).get().getSmsStatus());
+        for (Message message : messageRepository.findAllById(List.of(second.getId(), third.getId()))) {
+            assertEquals(MessageStatus.submission_succeeded, message.getSmsStatus());
+            assertEquals(MessageStatus.submission_succeeded, message.getEmailStatus());
+        }
+        ArgumentCaptor<JobRequest> jobRequestCaptor = ArgumentCaptor.forClass(JobRequest.class);
+        Mockito.verify(jobRequestScheduler).schedule(any(OffsetDateTime.class), jobRequestCaptor.capture());
+        assertEquals(List.of(failing.getId()), ((SendMessagesJobRequest) jobRequestCaptor.getValue()).getMessageIds());
+    }
+
+    @Test
+    void whenEnqueueingSendMessageJobs_thenOneSendMessagesJobIsEnqueuedPerMailgunBatch() {
+        messageService.enqueueSendMessageJobs(List.of(1L, 2L, 3L));
+
+        ArgumentCaptor<Stream> jobRequestsCaptor = ArgumentCaptor.forClass(Stream.class);
+        Mockito.verify(jobRequestScheduler).enqueue(jobRequestsCaptor.capture());
+        List<?> jobRequests = jobRequestsCaptor.getValue().toList();
+        assertEquals(1, jobRequests.size());
+        assertEquals(List.of(1L, 2L, 3L), ((SendMessagesJobRequest) jobRequests.get(0)).getMessageIds());
+    }
+
+    private Message saveEmailMessage(String toEmail, String placeholder) {
+        return messageService.saveMessage(TestData.aMessageRequest()
+                .toEmail(toEmail)
+                .templateParams(Map.of("placeholder", placeholder))
+                .build(), null);
+    }
+
+    private Message saveMessage(PhoneNumber toPhone, String toEmail) {
+        return messageService.saveMessage(TestData.aMessageRequest()
+                .toPhone(toPhone)
+                .toEmail(toEmail)
+                .templateParams(Map.of("placeholder", toEmail))
+                .build(), null);
+    }
+}
@@ -2,21 +2,35 @@ package org.codeforamerica.messaging.services;
 
 import org.codeforamerica.messaging.TestData;
 import org.codeforamerica.messaging.exceptions.MessageSendException;
+import org.codeforamerica.messaging.exceptions.ProviderRateLimitedException;
+import org.codeforamerica.messaging.jobs.SendMessageJobRequest;
 import org.codeforamerica.messaging.models.Message;
 import org.codeforamerica.messaging.models.MessageStatus;
 import org.codeforamerica.messaging.models.Template;
+import org.codeforamerica.messaging.repositories.EmailMessageRepository;
 import org.codeforamerica.messaging.repositories.MessageRepository;
 import org.codeforamerica.messaging.repositories.TemplateRepository;
+import org.jobrunr.jobs.lambdas.JobRequest;
+import org.jobrunr.scheduling.JobRequestScheduler;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 
 
 @SpringBootTest
@@ -29,6 +43,9 @@ public class MessageServiceErrorHandlingTest {
     @MockBean
     EmailService emailService;
 
+    @MockBean
+    JobRequestScheduler jobRequestScheduler;
+
     @Autowired
     MessageService messageService;
 
@@ -38,6 +55,9 @@ public class MessageServiceErrorHandlingTest {
     @Autowired
     TemplateRepository templateRepository;
 
+    @Autowired
+    EmailMessageRepository emailMessageRepository;
+
     @BeforeEach
     void setup() {
         template = TestData.aTemplate().build();
@@ -49,6 +69,7 @@ public class MessageServiceErrorHandlingTest {
     @AfterEach
     void tearDown() {
         messageRepository.deleteAll();
+        emailMessageRepository.deleteAll();
         templateRepository.deleteAll();
     }
 
@@ -77,4 +98,79 @@ public class MessageServiceErrorHandlingTest {
         assertEquals("Houston, we have a problem", attemptedMessage.getEmailErrorMessage());
     }
 
+    @Test
+    void whenSmsServiceThrowsRetryableException_ThenMessageIsRescheduledWithBackoff() throws MessageSendException {
+        Mockito.when(smsService.sendSmsMessage(any(), any()))
+                .thenThrow(new MessageSendException("Service unavailable", true));
+        Message message = messageService.saveMessage(TestData.aMessageRequest().toPhone(TestData.TO_PHONE).templateName(template.getName()).build(), null);
+
+        messageService.sendMessage(message.getId());
+        Message attemptedMessage = messageRepository.findById(message.getId()).get();
+        assertEquals(MessageStatus.retrying, attemptedMessage.getSmsStatus());
+        assertEquals("Service unavailable", attemptedMessage.getSmsErrorMessage());
+        assertEquals(1, attemptedMessage.getSmsRetryCount());
+        assertTrue(attemptedMessage.needToSendSms());
+        Mockito.verify(jobRequestScheduler).schedule(
+                (OffsetDateTime) argThat(x -> ((OffsetDateTime) x).isAfter(OffsetDateTime.now().plusSeconds(10))
+                        && ((OffsetDateTime) x).isBefore(OffsetDateTime.now().plusSeconds(31))),
+                (JobRequest) argThat(x -> x instanceof SendMessageJobRequest request
+                        && request.getMessageId().equals(message.getId())));
+
+        messageService.sendMessage(message.getId());
+        assertEquals(2, messageRepository.findById(message.getId()).get().getSmsRetryCount());
+    }
+
+    @Test
+    void whenEmailRetriesAreUsedUp_ThenEmailSubmissionFails() throws MessageSendException {
+        Mockito.when(emailService.sendEmailMessage(any(), any(), any()))
+                .thenThrow(new MessageSendException("Service unavailable", true));
+        Message message = messageService.saveMessage(TestData.aMessageRequest().toEmail(TestData.TO_EMAIL).templateName(template.getName()).build(), null);
+        message.setEmailStatus(MessageStatus.retrying);
+        message.setEmailRetryCount(5);
+        messageRepository.save(message);
+
+        messageService.sendMessage(message.getId());
+        Message attemptedMessage = messageRepository.findById(message.getId()).get();
+        assertEquals(MessageStatus.submission_failed, attemptedMessage.getEmailStatus());
+        assertEquals(5, attemptedMessage.getEmailRetryCount());
+        Mockito.verifyNoInteractions(jobRequestScheduler);
+    }
+
+    @Test
+    void whenSmsIsRateLimited_ThenEmailIsSentAndMessageIsRescheduled() throws MessageSendException {
+        Mockito.when(smsService.sendSmsMessage(any(), any()))
+                .thenThrow(new ProviderRateLimitedException("Twilio", Duration.ofSeconds(30)));
+        Mockito.when(emailService.sendEmailMessage(any(), any(), any())).thenReturn(emailMessageRepository.save(TestData.anEmailMessage().build()));
+        Message message = messageService.saveMessage(TestData.aMessageRequest()
+                .toPhone(TestData.TO_PHONE)
+                .toEmail(TestData.TO_EMAIL)
+                .templateName(template.getName())
+                .build(), null);
+
+        messageService.sendMessage(message.getId());
+        Message attemptedMessage = messageRepository.findById(message.getId()).get();
+        assertNull(attemptedMessage.getSmsStatus());
+        assertEquals(MessageStatus.submission_succeeded, attemptedMessage.getEmailStatus());
+        Mockito.verify(jobRequestScheduler).schedule(
+                (OffsetDateTime) argThat(x -> ((OffsetDateTime) x).isAfter(OffsetDateTime.now().plusSeconds(20))),
+                (JobRequest) argThat(x -> x instanceof SendMessageJobRequest request
+                        && request.getMessageId().equals(message.getId())));
+    }
+
+    @Test
+    void whenManySmsAreRateLimitedAtOnce_ThenTheyAreNotAllRescheduledForTheSameTime() throws MessageSendException {
+        Mockito.when(smsService.sendSmsMessage(any(), any()))
+                .thenThrow(new ProviderRateLimitedException("Twilio", Duration.ofSeconds(1)));
+        OffsetDateTime earliestSendAt = OffsetDateTime.now().plusSeconds(1);
+        for (int i = 0; i < 20; i++) {
+            Message message = messageService.saveMessage(TestData.aMessageRequest().toPhone(TestData.TO_PHONE).templateName(template.getName()).build(), null);
+            messageService.sendMessage(message.getId());
+        }
+
+        ArgumentCaptor<OffsetDateTime> sendAtCaptor = ArgumentCaptor.forClass(OffsetDateTime.class);
+        Mockito.verify(jobRequestScheduler, Mockito.times(20)).schedule(sendAtCaptor.capture(), any(JobRequest.class));
+        Set<OffsetDateTime> sendAts = new HashSet<>(sendAtCaptor.getAllValues());
+        assertTrue(sendAts.size() > 1);
+        assertTrue(sendAts.stream().noneMatch(sendAt -> sendAt.isBefore(earliestSendAt)));
+    }
 }
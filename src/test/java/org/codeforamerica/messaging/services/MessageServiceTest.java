@@ -3,6 +3,7 @@ package org.codeforamerica.messaging.services;
 import org.codeforamerica.messaging.TestData;
 import org.codeforamerica.messaging.exceptions.MessageSendException;
 import org.codeforamerica.messaging.exceptions.MissingHeadersException;
+import org.codeforamerica.messaging.jobs.EnqueueMessagesJobRequest;
 import org.codeforamerica.messaging.jobs.SendMessageBatchJobRequest;
 import org.codeforamerica.messaging.jobs.SendMessageJobRequest;
 import org.codeforamerica.messaging.models.*;
@@ -24,12 +25,15 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.codeforamerica.messaging.utils.CSVReader.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 
 @SpringBootTest
 class MessageServiceTest {
@@ -79,6 +83,23 @@ class MessageServiceTest {
         Mockito.verify(emailService, Mockito.never()).sendEmailMessage(Mockito.any(), Mockito.any(), Mockito.any());
     }
 
+    @Test
+    void whenMessageIsSent_thenSentSmsAndEmailAreSavedLinkedToIt() throws MessageSendException {
+        Mockito.when(smsService.sendSmsMessage(any(), anyString())).thenReturn(TestData.anSmsMessage().build());
+        Mockito.when(emailService.sendEmailMessage(anyString(), anyString(), anyString()))
+                .thenReturn(TestData.anEmailMessage().build());
+        Message message = messageService.saveMessage(TestData.aMessageRequest()
+                .toPhone(TestData.TO_PHONE)
+                .toEmail(TestData.TO_EMAIL)
+                .build(), null);
+
+        messageService.sendMessage(message.getId());
+        assertEquals(message.getId(),
+                smsMessageRepository.findFirstByProviderMessageId(TestData.PROVIDER_MESSAGE_ID).getMessage().getId());
+        assertEquals(message.getId(),
+                emailMessageRepository.findFirstByProviderMessageId(TestData.PROVIDER_MESSAGE_ID).getMessage().getId());
+    }
+
     @Test
     void whenOnlyEmail_thenOnlyEmailServiceCalled() throws MessageSendException {
         Message message = messageService.saveMessage(TestData.aMessageRequest().toEmail(TestData.TO_EMAIL).build(), null);
@@ -107,6 +128,32 @@ class MessageServiceTest {
         assertTrue(emailBodyCaptor.getValue().contains("To unsubscribe click: %unsubscribe_url%"));
     }
 
+    @Test
+    void whenBothPhoneAndEmail_thenSmsAndEmailAreSentAtTheSameTime() throws MessageSendException {
+        CountDownLatch bothSending = new CountDownLatch(2);
+        Mockito.when(smsService.sendSmsMessage(any(), anyString())).thenAnswer(invocation -> {
+            bothSending.countDown();
+            assertTrue(bothSending.await(5, TimeUnit.SECONDS));
+            return smsMessageRepository.save(TestData.anSmsMessage().build());
+        });
+        Mockito.when(emailService.sendEmailMessage(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            bothSending.countDown();
+            assertTrue(bothSending.await(5, TimeUnit.SECONDS));
+            return emailMessageRepository.save(TestData.anEmailMessage().build());
+        });
+        MessageRequest messageRequest = TestData.aMessageRequest()
+                .toPhone(TestData.TO_PHONE)
+                .toEmail(TestData.TO_EMAIL)
+                .build();
+        Message message = messageService.saveMessage(messageRequest, null);
+
+        messageService.sendMessage(message.getId());
+        Message sentMessage = messageRepository.findById(message.getId()).get();
+        assertEquals(MessageStatus.submission_succeeded, sentMessage.getSmsStatus());
+        assertEquals(MessageStatus.submission_succeeded, sentMessage.getEmailStatus());
+        assertEquals(message.getVersion() + 1, sentMessage.getVersion());
+    }
+
     @Test
     void whenMessageRequestHasLanguageAndTreatment_thenValuesAreUsedToSelectTemplateVariant() throws MessageSendException {
         MessageRequest messageRequest = TestData.aMessageRequest()
@@ -159,16 +206,37 @@ class MessageServiceTest {
         messageBatchRepository.save(messageBatch);
 
         messageService.scheduleMessagesInBatch(messageBatch.getId());
-        Mockito.verify(jobRequestScheduler, times(2)).schedule(
-                (OffsetDateTime) any(),
-                isA(SendMessageJobRequest.class)
-        );
+        assertThat(enqueuedMessageIds()).containsExactlyInAnyOrderElementsOf(
+                messageRepository.findMessagesByMessageBatchId(messageBatch.getId()).stream().map(Message::getId).toList());
         assertThat(messageRepository.findMessagesByMessageBatchId(messageBatch.getId()).stream().map(Message::getToPhone))
                 .containsExactlyInAnyOrderElementsOf(List.of(PhoneNumber.valueOf("8885551212"), PhoneNumber.valueOf("1234567890")));
         assertThat(messageRepository.findMessagesByMessageBatchId(messageBatch.getId()).stream().map(Message::getToEmail))
                 .containsExactlyInAnyOrderElementsOf(List.of("bar@example.org", "foo@example.com"));
      }
 
+    @Test
+    void whenSchedulingMessageBatchToSendLater_thenOneEnqueueMessagesJobIsScheduled() {
+        String recipients = """
+                phone, email, placeholder
+                1234567890,bar@example.org, placeholder
+                8885551212,foo@example.com, placeholder
+                """;
+        MessageBatch messageBatch = MessageBatch.builder()
+                .template(template)
+                .recipients(recipients.getBytes())
+                .sendAt(OffsetDateTime.now().plusDays(1))
+                .build();
+        messageBatchRepository.save(messageBatch);
+
+        messageService.scheduleMessagesInBatch(messageBatch.getId());
+        ArgumentCaptor<EnqueueMessagesJobRequest> jobRequestCaptor = ArgumentCaptor.forClass(EnqueueMessagesJobRequest.class);
+        Mockito.verify(jobRequestScheduler).schedule(
+                (OffsetDateTime) argThat(x -> ((OffsetDateTime) x).isAfter(OffsetDateTime.now())),
+                jobRequestCaptor.capture());
+        assertThat(jobRequestCaptor.getValue().getMessageIds()).containsExactlyInAnyOrderElementsOf(
+                messageRepository.findMessagesByMessageBatchId(messageBatch.getId()).stream().map(Message::getId).toList());
+        Mockito.verify(jobRequestScheduler, never()).enqueue(any(Stream.class));
+    }
 
     @Test
     @Transactional
@@ -235,10 +303,7 @@ class MessageServiceTest {
         messageBatchRepository.save(messageBatch);
 
         messageService.scheduleMessagesInBatch(messageBatch.getId());
-        Mockito.verify(jobRequestScheduler, times(1)).schedule(
-                (OffsetDateTime) any(),
-                isA(SendMessageJobRequest.class)
-        );
+        assertEquals(1, enqueuedMessageIds().size());
         assertThat(messageRepository.findMessagesByMessageBatchId(messageBatch.getId()).stream().map(Message::getToPhone))
                 .containsExactly(PhoneNumber.valueOf("8885551212"));
         assertEquals(1, messageBatchRepository.findById(messageBatch.getId()).get().getRecipientErrorRows().size());
@@ -247,6 +312,13 @@ class MessageServiceTest {
                         .map(row -> row.get(ERROR_HEADER)).findFirst().get());
     }
 
+    @SuppressWarnings("unchecked")
+    private List<Long> enqueuedMessageIds() {
+        ArgumentCaptor<Stream<SendMessageJobRequest>> jobRequestsCaptor = ArgumentCaptor.forClass(Stream.class);
+        Mockito.verify(jobRequestScheduler).enqueue(jobRequestsCaptor.capture());
+        return jobRequestsCaptor.getValue().map(SendMessageJobRequest::getMessageId).toList();
+    }
+
     private void addMessage(MessageBatch originalMessageBatch, MessageStatus emailStatus, MessageStatus smsStatus) {
         Message message = TestData.aMessage(originalMessageBatch.getTemplate().getTemplateVariants().stream().findFirst().get())
                 .messageBatch(originalMessageBatch)
@@ -0,0 +1,88 @@
+package org.codeforamerica.messaging.services;
+
+import org.codeforamerica.messaging.exceptions.MessageSendException;
+import org.codeforamerica.messaging.exceptions.UnsubscribedException;
+import org.codeforamerica.messaging.models.PhoneNumber;
+import org.codeforamerica.messaging.models.SmsSubscriptionState;
+import org.codeforamerica.messaging.providers.twilio.TwilioGateway;
+import org.codeforamerica.messaging.repositories.SmsMessageRepository;
+import org.codeforamerica.messaging.repositories.SmsSubscriptionRepository;
+import org.codeforamerica.messaging.repositories.SmsSubscriptionStateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrowsExactly;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+
+@SpringBootTest(properties = {"subscription-cache.enabled=true"})
+class SmsServiceSubscriptionCacheTest {
+    @Autowired
+    SmsSubscriptionRepository smsSubscriptionRepository;
+    @SpyBean
+    SmsSubscriptionStateRepository smsSubscriptionStateRepository;
+    @MockBean
+    TwilioGateway twilioGateway;
+    @MockBean
+    SmsMessageRepository smsMessageRepository;
+    @Autowired
+    SmsService smsService;
+
+    @AfterEach
+    void tearDown() {
+        smsSubscriptionRepository.deleteAll();
+        smsSubscriptionStateRepository.deleteAll();
+    }
+
+    @Test
+    public void whenPhoneIsUnsubscribed_ThenThrowsUnsubscribedExceptionWithoutQueryingSubscriptions() {
+        PhoneNumber phoneNumber = PhoneNumber.valueOf("8005551212");
+        smsService.unsubscribe(phoneNumber);
+
+        assertThrowsExactly(UnsubscribedException.class, () -> smsService.sendSmsMessage(phoneNumber, "some body"));
+        Mockito.verify(smsSubscriptionStateRepository, never()).findById(any());
+    }
+
+    @Test
+    public void whenPhoneResubscribes_ThenSendsSms() throws MessageSendException {
+        PhoneNumber phoneNumber = PhoneNumber.valueOf("8005551212");
+        smsService.unsubscribe(phoneNumber);
+        smsService.subscribe(phoneNumber);
+
+        smsService.sendSmsMessage(phoneNumber, "some body");
+        Mockito.verify(twilioGateway).sendMessage(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void whenPhoneResubscribes_ThenHistoryIsKeptAndStateIsUpdated() {
+        PhoneNumber phoneNumber = PhoneNumber.valueOf("8005551212");
+        smsService.unsubscribe(phoneNumber);
+        smsService.subscribe(phoneNumber);
+
+        assertEquals(2, smsSubscriptionRepository.count());
+        assertEquals(1, smsSubscriptionStateRepository.count());
+        assertFalse(smsSubscriptionStateRepository.findById(phoneNumber.getNumber()).get().isUnsubscribed());
+    }
+
+    @Test
+    public void whenAnotherInstanceUnsubscribesPhone_ThenRefreshPicksItUp() {
+        PhoneNumber phoneNumber = PhoneNumber.valueOf("8005551313");
+        smsSubscriptionStateRepository.save(SmsSubscriptionState.builder()
+                .phoneNumber(phoneNumber.getNumber())
+                .unsubscribed(true)
+                .updateTimestamp(OffsetDateTime.now())
+                .build());
+
+        smsService.refreshSubscriptionCache();
+        assertThrowsExactly(UnsubscribedException.class, () -> smsService.sendSmsMessage(phoneNumber, "some body"));
+    }
+}
@@ -0,0 +1,43 @@
+package org.codeforamerica.messaging.services;
+
+import org.codeforamerica.messaging.TestData;
+import org.codeforamerica.messaging.models.MessageStatus;
+import org.codeforamerica.messaging.models.StatusEvent;
+import org.codeforamerica.messaging.repositories.StatusEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {"status-events.async-ingest.enabled=true"})
+class StatusEventServiceAsyncIngestTest {
+    @Autowired
+    StatusEventService statusEventService;
+    @Autowired
+    StatusEventRepository statusEventRepository;
+
+    @AfterEach
+    void tearDown() {
+        statusEventRepository.deleteAll();
+    }
+
+    @Test
+    public void whenAsyncIngestIsEnabled_ThenRecordedEventsAreSavedInTheBackground() throws InterruptedException {
+        IntStream.range(0, 10).forEach(i -> statusEventService.record(StatusEvent.builder()
+                .channel(StatusEvent.Channel.sms)
+                .providerMessageId(TestData.PROVIDER_MESSAGE_ID + i)
+                .rawStatus("delivered")
+                .status(MessageStatus.delivered)
+                .fromPhone(TestData.TO_PHONE)
+                .build()));
+
+        for (int i = 0; i < 50 && statusEventRepository.count() < 10; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(10, statusEventRepository.count());
+    }
+}
@@ -0,0 +1,219 @@
+package org.codeforamerica.messaging.services;
+
+import org.codeforamerica.messaging.TestData;
+import org.codeforamerica.messaging.models.*;
+import org.codeforamerica.messaging.repositories.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"status-events.max-attempts=2"})
+class StatusEventServiceTest {
+    @Autowired
+    StatusEventService statusEventService;
+    @Autowired
+    StatusEventRepository statusEventRepository;
+    @Autowired
+    SmsMessageRepository smsMessageRepository;
+    @Autowired
+    EmailMessageRepository emailMessageRepository;
+    @Autowired
+    MessageRepository messageRepository;
+    @Autowired
+    TemplateRepository templateRepository;
+    @Autowired
+    SmsService smsService;
+    @Autowired
+    EmailService emailService;
+
+    TemplateVariant templateVariant;
+
+    @BeforeEach
+    void setup() {
+        Template template = TestData.aTemplate().build();
+        TestData.addVariantsToTemplate(template);
+        template = templateRepository.save(template);
+        templateVariant = template.getTemplateVariants().stream().findAny().get();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statusEventRepository.deleteAll();
+        messageRepository.deleteAll();
+        smsMessageRepository.deleteAll();
+        emailMessageRepository.deleteAll();
+        templateRepository.deleteAll();
+    }
+
+    @Test
+    public void whenStatusEventsAreApplied_ThenMessagesAreUpdatedAndEventsAreRemoved() {
+        Message message = messageRepository.save(TestData.aMessage(templateVariant)
+                .smsStatus(MessageStatus.sent)
+                .emailStatus(MessageStatus.sent)
+                .build());
+        SmsMessage smsMessage = smsMessageRepository.save(TestData.anSmsMessage().message(message).build());
+        EmailMessage emailMessage = emailMessageRepository.save(TestData.anEmailMessage().message(message).build());
+        message.setSmsMessage(smsMessage);
+        message.setEmailMessage(emailMessage);
+        messageRepository.save(message);
+
+        statusEventService.record(StatusEvent.builder()
+                .channel(StatusEvent.Channel.sms)
+                .providerMessageId(TestData.PROVIDER_MESSAGE_ID)
+                .rawStatus("delivered")
+                .status(MessageStatus.delivered)
+                .fromPhone(TestData.TO_PHONE)
+                .build());
+        statusEventService.record(StatusEvent.builder()
+                .channel(StatusEvent.Channel.email)
+                .providerMessageId(TestData.PROVIDER_MESSAGE_ID)
+                .toEmail(TestData.TO_EMAIL)
+                .rawStatus("delivered")
+                .status(MessageStatus.delivered)
+                .build());
+
+        assertEquals(2, statusEventService.applyStatusEvents());
+        Message updatedMessage = messageRepository.findById(message.getId()).get();
+        assertEquals(MessageStatus.delivered, updatedMessage.getSmsStatus());
+        assertEquals(MessageStatus.delivered, updatedMessage.getEmailStatus());
+        assertEquals(0, statusEventRepository.count());
+    }
+
+    @Test
+    public void whenMessageIsNotFound_ThenEventIsRetriedLaterAndDroppedAfterMaxAttempts() {
+        statusEventService.record(StatusEvent.builder()
+                .channel(StatusEvent.Channel.sms)
+                .providerMessageId("unknown-provider-message-id")
+                .rawStatus("delivered")
+                .status(MessageStatus.delivered)
+                .fromPhone(TestData.TO_PHONE)
+                .build());
+
+        assertEquals(1, statusEventService.applyStatusEvents());
+        StatusEvent statusEvent = statusEventRepository.findAll().iterator().next();
+        assertEquals(1, statusEvent.getAttempts());
+        assertTrue(statusEvent.getApplyAfter().isAfter(OffsetDateTime.now()));
+        assertEquals(0, statusEventService.applyStatusEvents());
+
+        statusEvent.setApplyAfter(OffsetDateTime.now().minusSeconds(1));
+        statusEventRepository.save(statusEvent);
+        assertEquals(1, statusEventService.applyStatusEvents());
+        assertEquals(0, statusEventRepository.count());
+    }
+
+    @Test
+    public void whenCallbackArrivesBeforeMessageIsLinked_ThenEventIsRetriedUntilItIs() {
+        Message message = messageRepository.save(TestData.aMessage(templateVariant)
+                .smsStatus(MessageStatus.sent)
+                .emailStatus(MessageStatus.sent)
+                .build());
+        SmsMessage smsMessage = smsMessageRepository.save(TestData.anSmsMessage().build());
+        EmailMessage emailMessage = emailMessageRepository.save(TestData.anEmailMessage().build());
+        statusEventService.record(anSmsStatusEvent(MessageStatus.delivered, "delivered"));
+        statusEventService.record(StatusEvent.builder()
+                .channel(StatusEvent.Channel.email)
+                .providerMessageId(TestData.PROVIDER_MESSAGE_ID)
+                .toEmail(TestData.TO_EMAIL)
+                .rawStatus("delivered")
+                .status(MessageStatus.delivered)
+                .build());
+
+        assertFalse(smsService.applyStatus(TestData.PROVIDER_MESSAGE_ID, MessageStatus.delivered, "delivered",
+                TestData.TO_PHONE, null));
+        assertFalse(emailService.applyStatus(TestData.PROVIDER_MESSAGE_ID, TestData.TO_EMAIL, MessageStatus.delivered,
+                "delivered", null));
+        assertEquals(2, statusEventService.applyStatusEvents());
+        assertEquals(2, statusEventRepository.count());
+        statusEventRepository.findAll().forEach(statusEvent -> assertEquals(1, statusEvent.getAttempts()));
+
+        message.setSmsMessage(smsMessage);
+        message.setEmailMessage(emailMessage);
+        messageRepository.save(message);
+        statusEventRepository.findAll().forEach(statusEvent -> {
+            statusEvent.setApplyAfter(OffsetDateTime.now().minusSeconds(1));
+            statusEventRepository.save(statusEvent);
+        });
+
+        assertEquals(2, statusEventService.applyStatusEvents());
+        Message updatedMessage = messageRepository.findById(message.getId()).get();
+        assertEquals(MessageStatus.delivered, updatedMessage.getSmsStatus());
+        assertEquals(MessageStatus.delivered, updatedMessage.getEmailStatus());
+        assertEquals(0, statusEventRepository.count());
+    }
+
+    @Test
+    public void whenSeveralEventsAreForOneMessage_ThenTheLatestStatusIsApplied() {
+        Message message = messageRepository.save(TestData.aMessage(templateVariant).smsStatus(MessageStatus.queued).build());
+        SmsMessage smsMessage = smsMessageRepository.save(TestData.anSmsMessage().message(message).build());
+        message.setSmsMessage(smsMessage);
+        messageRepository.save(message);
+
+        statusEventService.record(anSmsStatusEvent(MessageStatus.delivered, "delivered"));
+        statusEventService.record(anSmsStatusEvent(MessageStatus.sent, "sent"));
+        statusEventService.record(anSmsStatusEvent(MessageStatus.queued, "queued"));
+
+        assertEquals(3, statusEventService.applyStatusEvents());
+        Message updatedMessage = messageRepository.findById(message.getId()).get();
+        assertEquals(MessageStatus.delivered, updatedMessage.getSmsStatus());
+        assertEquals("delivered", updatedMessage.getRawSmsStatus());
+        assertEquals(0, statusEventRepository.count());
+    }
+
+    @Test
+    public void whenEmailsShareAProviderMessageId_ThenEachRecipientGetsItsOwnStatus() {
+        Message delivered = saveEmailMessage("one@example.com");
+        Message failed = saveEmailMessage("two@example.com");
+
+        statusEventService.record(StatusEvent.builder()
+                .channel(StatusEvent.Channel.email)
+                .providerMessageId(TestData.PROVIDER_MESSAGE_ID)
+                .toEmail("ONE@example.com")
+                .rawStatus("delivered")
+                .status(MessageStatus.delivered)
+                .build());
+        statusEventService.record(StatusEvent.builder()
+                .channel(StatusEvent.Channel.email)
+                .providerMessageId(TestData.PROVIDER_MESSAGE_ID)
+                .toEmail("two@example.com")
+                .rawStatus("failed")
+                .status(MessageStatus.undelivered)
+                .providerError(Map.of("reason", "bounce"))
+                .build());
+
+        assertEquals(2, statusEventService.applyStatusEvents());
+        assertEquals(MessageStatus.delivered, messageRepository.findById(delivered.getId()).get().getEmailStatus());
+        Message updatedFailed = messageRepository.findById(failed.getId()).get();
+        assertEquals(MessageStatus.undelivered, updatedFailed.getEmailStatus());
+        assertEquals(Map.of("reason", "bounce"),
+                emailMessageRepository.findById(updatedFailed.getEmailMessage().getId()).get().getProviderError());
+    }
+
+    private StatusEvent anSmsStatusEvent(MessageStatus status, String rawStatus) {
+        return StatusEvent.builder()
+                .channel(StatusEvent.Channel.sms)
+                .providerMessageId(TestData.PROVIDER_MESSAGE_ID)
+                .rawStatus(rawStatus)
+                .status(status)
+                .fromPhone(TestData.TO_PHONE)
+                .build();
+    }
+
+    private Message saveEmailMessage(String toEmail) {
+        Message message = messageRepository.save(TestData.aMessage(templateVariant)
+                .toEmail(toEmail)
+                .emailStatus(MessageStatus.sent)
+                .build());
+        EmailMessage emailMessage = emailMessageRepository.save(TestData.anEmailMessage().message(message).toEmail(toEmail).build());
+        message.setEmailMessage(emailMessage);
+        return messageRepository.save(message);
+    }
+}
@@ -0,0 +1,83 @@
+package org.codeforamerica.messaging.services;
+
+import org.codeforamerica.messaging.TestData;
+import org.codeforamerica.messaging.models.Template;
+import org.codeforamerica.messaging.models.TemplateVariant;
+import org.codeforamerica.messaging.models.TemplateVariantRequest;
+import org.codeforamerica.messaging.repositories.TemplateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+
+@SpringBootTest(properties = {"template-cache.enabled=true"})
+class TemplateServiceCacheTest {
+    @Autowired
+    TemplateService templateService;
+    @SpyBean
+    TemplateRepository templateRepository;
+    @Autowired
+    TemplateCache templateCache;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        await().atMost(10, SECONDS).until(templateCache::isListening);
+        Template template = TestData.aTemplate().build();
+        TestData.addVariantsToTemplate(template);
+        templateService.createTemplate(template);
+        Mockito.clearInvocations(templateRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        templateService.deleteTemplateAndVariants(TestData.TEMPLATE_NAME);
+    }
+
+    @Test
+    void whenTemplateIsReadRepeatedly_thenItIsLoadedOnce() {
+        templateService.getTemplateByName(TestData.TEMPLATE_NAME);
+        templateService.getTemplateByName(" " + TestData.TEMPLATE_NAME.toUpperCase());
+        TemplateVariant templateVariant = templateService.getTemplateVariant(TestData.TEMPLATE_NAME, "es", "B");
+
+        assertEquals(TestData.TEMPLATE_SUBJECT_ES_B, templateVariant.getSubject());
+        Mockito.verify(templateRepository, times(1)).findFirstByNameIgnoreCase(anyString());
+    }
+
+    @Test
+    void whenTemplateIsChanged_thenTheChangeIsReadBack() {
+        templateService.getTemplateByName(TestData.TEMPLATE_NAME);
+
+        templateService.mergeTemplateVariant(TestData.TEMPLATE_NAME, "en", "A",
+                new TemplateVariantRequest("New subject", "New email body", "New SMS body"));
+
+        assertEquals("New subject", templateService.getTemplateVariant(TestData.TEMPLATE_NAME, "en", "A").getSubject());
+    }
+
+    @Test
+    void whenTemplateIsChangedByAnotherInstance_thenTheChangeIsReadBackAfterTheNotification() {
+        templateService.getTemplateByName(TestData.TEMPLATE_NAME);
+        Template template = templateRepository.findFirstByNameIgnoreCase(TestData.TEMPLATE_NAME).get();
+        template.getTemplateVariant("en", "A").get().setSubject("Changed elsewhere");
+        templateRepository.save(template);
+        assertEquals(TestData.TEMPLATE_SUBJECT_DEFAULT,
+                templateService.getTemplateVariant(TestData.TEMPLATE_NAME, "en", "A").getSubject());
+
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", TemplateCache.CHANNEL,
+                TemplateCache.toPayload("other-instance", TestData.TEMPLATE_NAME));
+
+        await().atMost(10, SECONDS).until(() -> "Changed elsewhere".equals(
+                templateService.getTemplateVariant(TestData.TEMPLATE_NAME, "en", "A").getSubject()));
+    }
+}
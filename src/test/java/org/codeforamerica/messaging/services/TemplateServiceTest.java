@@ -118,6 +118,24 @@ class TemplateServiceTest {
         assertNull(template.getTemplateVariant("en", "A").get().getSubject());
     }
 
+    @Test
+    void whenUpdatingATemplateVariant_thenStoredPlaceholdersAreUpdated() {
+        Template template = TestData.aTemplate().build();
+        TestData.addVariantsToTemplate(template);
+        templateRepository.save(template);
+        assertEquals(Set.of("placeholder"), templateRepository.findFirstByNameIgnoreCase(TestData.TEMPLATE_NAME).get()
+                .getTemplateVariant("en", "A").get().getPlaceholders());
+
+        Set<TemplateVariant> newTemplateVariants = Set.of(TestData.aTemplateVariant()
+                .smsBody("new body {{{firstName}}}")
+                .emailBody(null)
+                .subject(null)
+                .build());
+        templateService.modifyTemplateVariants(TestData.TEMPLATE_NAME, newTemplateVariants);
+        assertEquals(Set.of("firstName"), templateRepository.findFirstByNameIgnoreCase(TestData.TEMPLATE_NAME).get()
+                .getTemplateVariant("en", "A").get().getPlaceholders());
+    }
+
     @Test
     void whenAddingDuplicateOfUsedTemplateVariant_thenRejectTheDuplicate() {
         Template template = TestData.aTemplate().build();
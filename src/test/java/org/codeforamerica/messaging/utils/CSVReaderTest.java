@@ -1,9 +1,11 @@
 package org.codeforamerica.messaging.utils;
 
+import org.apache.commons.csv.CSVRecord;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -40,4 +42,17 @@ class CSVReaderTest {
 
         assertEquals(result, List.of("1234567890", "8885551212"));
     }
+
+    @Test
+    public void whenResumedFromRecordPosition_ThenReturnsRemainingRecords() throws IOException {
+        CSVReader reader = new CSVReader(new StringReader(testCSV));
+        Iterator<CSVRecord> records = reader.iterator();
+        records.next();
+        long secondRecordPosition = records.next().getCharacterPosition();
+
+        CSVReader resumedReader = new CSVReader(new StringReader(testCSV), reader.getHeaderNames(), secondRecordPosition);
+
+        List<String> result = resumedReader.stream().map((r) -> r.get("email")).collect(Collectors.toList());
+        assertEquals(result, List.of("foo@example.com"));
+    }
 }